@@ -0,0 +1,94 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class BitmapPoolInstrumentedTest {
+
+    private static final int SIZE = 64 * 64 * 4;
+
+    private BitmapPool pool;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BitmapPool.isSupported());
+        pool = new BitmapPool(4 * SIZE);
+    }
+
+    @Test
+    public void getReusesBitmapThatFits() {
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        assertEquals(SIZE, pool.getSize());
+
+        assertNull(pool.get(SIZE + 1));
+        assertSame(bitmap, pool.get(SIZE - 100));
+        assertNull(pool.get(SIZE));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void getSkipsBitmapsTooLargeToReuse() {
+        pool.put(Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+        assertNull(pool.get(SIZE / 4));
+        assertEquals(1, pool.getBitmapCount());
+    }
+
+    @Test
+    public void putRejectsImmutableBitmaps() {
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        pool.put(Bitmap.createBitmap(bitmap));
+        assertEquals(0, pool.getBitmapCount());
+    }
+
+    @Test
+    public void putTrimsLargestFirst() {
+        for (int i = 0; i < 4; i++) {
+            pool.put(Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+        }
+        pool.put(Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888));
+        assertEquals(4, pool.getBitmapCount());
+        assertEquals(3 * SIZE + SIZE / 4, pool.getSize());
+        assertNotNull(pool.get(SIZE / 4));
+    }
+
+    @Test
+    public void evictedCacheEntriesArePooledAfterTheNextFrame() {
+        final ArrayList<Runnable> frame = new ArrayList<>();
+        ImageCache cache = new ImageCache(0);
+        cache.setBitmapPool(pool);
+        cache.setFrameExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                frame.add(command);
+            }
+        });
+        ImageCache.Key key = new ImageCache.Key(1, 64, 64);
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        cache.put(key, new BitmapDrawable(null, bitmap));
+        assertEquals(0, pool.getBitmapCount());
+
+        cache.release(key);
+        assertFalse(cache.contains(key));
+        assertEquals(0, pool.getBitmapCount());
+        assertEquals(1, frame.size());
+
+        frame.get(0).run();
+        assertSame(bitmap, pool.get(SIZE));
+    }
+}
@@ -1,13 +1,18 @@
 package com.ogbizi.android_swappable_imageview;
 
+import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 import android.util.AttributeSet;
 import android.util.Xml;
+import android.view.View;
 import android.widget.ImageView;
 
 import org.junit.After;
@@ -16,25 +21,28 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.xmlpull.v1.XmlPullParser;
 
+import static com.ogbizi.android_swappable_imageview.TestHelper.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
-import java.util.Arrays;
-import java.util.List;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 @RunWith(AndroidJUnit4.class)
 public class SwappableImageViewInstrumentedTest {
 
     private MockSwappableImageView swappableImageView;
     private Context mockContext;
-    private Integer[] mockResIds;
+    private int[] mockResIds;
     private AttributeSet mockAttrs;
 
     @Before
     public void setUp() throws Exception {
         mockContext = InstrumentationRegistry.getTargetContext();
-        mockResIds = new Integer[]{1, 2, 3, 4};
+        mockResIds = new int[]{1, 2, 3, 4};
         swappableImageView = new MockSwappableImageView(mockContext);
+        swappableImageView.setImageLoader(new ImageLoader(mockContext, DIRECT, DIRECT));
         swappableImageView.setDrawables(1, mockResIds);
         swappableImageView.setLooping(false);
 
@@ -56,13 +64,13 @@ public class SwappableImageViewInstrumentedTest {
 
     @Test
     public void init() {
-        Integer[] resIds = new Integer[]{
+        int[] resIds = new int[]{
                 R.integer.one, R.integer.two, R.integer.three,
             };
         MockSwappableImageView view = spy(
                 new MockSwappableImageView(mockContext, mockAttrs));
         assertEquals(1, view.getCurrentIndex());
-        assertArrayEquals(resIds, view.getDrawables().toArray(resIds));
+        assertArrayEquals(resIds, view.getDrawables().toArray());
     }
 
     @Test
@@ -80,6 +88,67 @@ public class SwappableImageViewInstrumentedTest {
         verify(b).onReset(any(ImageView.class), any(ImageView.class));
     }
 
+    @Test
+    public void onLayoutWithoutResizeDoesNotRebind() {
+        HorizontalSwappableImageBehavior b = mock(HorizontalSwappableImageBehavior.class);
+        swappableImageView.setDrawables(0, android.R.drawable.ic_menu_camera,
+                                        android.R.drawable.ic_menu_gallery);
+        swappableImageView.onLayout(true, 0, 0, 48, 48);
+        assertEquals(1, swappableImageView.getBindCount());
+
+        swappableImageView.setBehavior(b);
+        for (int i = 0; i < 10; i++) {
+            swappableImageView.onLayout(true, 0, i, 48, 48 + i);
+        }
+        verify(b, never()).onReset(any(ImageView.class), any(ImageView.class));
+        assertEquals(1, swappableImageView.getBindCount());
+
+        swappableImageView.onLayout(true, 0, 0, 96, 96);
+        verify(b).onReset(any(ImageView.class), any(ImageView.class));
+    }
+
+    @Test
+    public void recycleReleasesAndAttachRebinds() {
+        swappableImageView.setDrawables(0, android.R.drawable.ic_menu_camera,
+                                        android.R.drawable.ic_menu_gallery);
+        swappableImageView.onLayout(true, 0, 0, 48, 48);
+        assertNotNull(swappableImageView.primary.getDrawable());
+
+        swappableImageView.recycle();
+        assertNull(swappableImageView.primary.getDrawable());
+        assertNull(swappableImageView.secondary.getDrawable());
+
+        swappableImageView.onAttachedToWindow();
+        assertNotNull(swappableImageView.primary.getDrawable());
+        assertEquals(0, swappableImageView.getCurrentIndex());
+    }
+
+    @Test
+    public void swapRestoresFullSizeAfterDownsample() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setDrawables(0, android.R.drawable.ic_menu_camera,
+                                                android.R.drawable.ic_menu_gallery);
+                swappableImageView.onAttachedToWindow();
+                swappableImageView.layout(0, 0, 48, 48);
+                ImageCache.Key full = (ImageCache.Key) swappableImageView.primary
+                        .getTag(R.id.swappable_image_bound);
+                ((Application) mockContext.getApplicationContext())
+                        .onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+                ImageCache.Key half = (ImageCache.Key) swappableImageView.primary
+                        .getTag(R.id.swappable_image_bound);
+                assertTrue(half.width < full.width);
+
+                swappableImageView.setBehavior(mock(HorizontalSwappableImageBehavior.class));
+                swappableImageView.showNext(true);
+                assertEquals(full, swappableImageView.primary.getTag(R.id.swappable_image_bound));
+                swappableImageView.onDetachedFromWindow();
+            }
+        });
+    }
+
     @Test
     public void onMeasure() {
         MockSwappableImageView view = spy(
@@ -88,13 +157,58 @@ public class SwappableImageViewInstrumentedTest {
         verify(view).measureChildren(anyInt(), anyInt());
     }
 
+    @Test
+    public void flatWrapContentMeasuresImage() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final ArrayList<Runnable> deliveries = new ArrayList<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setImageLoader(new ImageLoader(mockContext, DIRECT, new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable command) {
+                        deliveries.add(command);
+                    }
+                }));
+                swappableImageView.setFlatRendering(true);
+                swappableImageView.setDrawables(0, android.R.drawable.ic_menu_camera,
+                                                android.R.drawable.ic_menu_gallery);
+                int wrap = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+                swappableImageView.measure(wrap, wrap);
+                swappableImageView.layout(0, 0, 0, 0);
+                assertEquals(0, swappableImageView.getMeasuredWidth());
+
+                for (Runnable delivery : new ArrayList<>(deliveries)) {
+                    delivery.run();
+                }
+                assertTrue(swappableImageView.isLayoutRequested());
+                swappableImageView.measure(wrap, wrap);
+                Drawable drawable = swappableImageView.primary.getDrawable();
+                assertEquals(drawable.getIntrinsicWidth(), swappableImageView.getMeasuredWidth());
+                assertEquals(drawable.getIntrinsicHeight(), swappableImageView.getMeasuredHeight());
+            }
+        });
+    }
+
     @Test
     public void setAndGetDrawables() {
         swappableImageView.setDrawables(1, 1, 2);
         assertEquals(1, swappableImageView.getCurrentIndex());
-        List drawables = swappableImageView.getDrawables();
+        IntSequence drawables = swappableImageView.getDrawables();
         assertEquals(2, drawables.size());
-        assertTrue(drawables.containsAll(Arrays.asList(1, 2)));
+        assertTrue(drawables.contains(1));
+        assertTrue(drawables.contains(2));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void setBoxedDrawables() {
+        swappableImageView.setDrawables(1, new Integer[]{1, null, 2});
+        assertEquals(1, swappableImageView.getCurrentIndex());
+        IntSequence drawables = swappableImageView.getDrawables();
+        assertEquals(3, drawables.size());
+        assertEquals(0, drawables.get(1));
+        assertEquals(2, drawables.get(2));
     }
 
     @Test
@@ -102,7 +216,7 @@ public class SwappableImageViewInstrumentedTest {
         int currentIndex = swappableImageView.getCurrentIndex();
         int testResInt = 99;
         swappableImageView.setNext(testResInt);
-        List drawables = swappableImageView.getDrawables();
+        IntSequence drawables = swappableImageView.getDrawables();
         assertEquals(testResInt, drawables.get(currentIndex + 1));
     }
 
@@ -111,10 +225,27 @@ public class SwappableImageViewInstrumentedTest {
         int index = swappableImageView.getCurrentIndex();
         int testResInt = 99;
         swappableImageView.setPrevious(testResInt);
-        List drawables = swappableImageView.getDrawables();
+        IntSequence drawables = swappableImageView.getDrawables();
         assertEquals(testResInt, drawables.get(index));
     }
 
+    @Test
+    public void setNextAndPreviousSources() {
+        ImageSource next = ImageSource.fromAsset("next.png");
+        ImageSource previous = ImageSource.fromFile(new File("previous.png"));
+        swappableImageView.setNext(next);
+        swappableImageView.setPrevious(previous);
+        swappableImageView.setNext(5);
+
+        int index = swappableImageView.getCurrentIndex();
+        assertEquals(2, index);
+        assertEquals(previous, swappableImageView.getImageSource(index - 1));
+        assertEquals(ImageSource.fromResource(5), swappableImageView.getImageSource(index + 1));
+        assertEquals(next, swappableImageView.getImageSource(index + 2));
+        assertEquals(0, swappableImageView.getDrawables().get(index + 2));
+        assertEquals(mockResIds[1], swappableImageView.getDrawables().get(index));
+    }
+
     @Test
     public void setIsLooping() {
         boolean looping = !swappableImageView.isLooping();
@@ -170,6 +301,233 @@ public class SwappableImageViewInstrumentedTest {
         }, 0);
     }
 
+    @Test
+    public void showNextQueuesAndCoalesces() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final HorizontalSwappableImageBehavior b = mock(HorizontalSwappableImageBehavior.class);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setBehavior(b);
+                swappableImageView.setCurrentIndex(0);
+                swappableImageView.showNext(false);
+                assertEquals(1, swappableImageView.getTargetIndex());
+
+                swappableImageView.showNext(false);
+                swappableImageView.showNext(false);
+                swappableImageView.showPrevious(false);
+                swappableImageView.showNext(false);
+                assertEquals(2, swappableImageView.getQueuedSteps());
+                verify(b).onStart(eq(false), any(ImageView.class),
+                                  any(ImageView.class));
+
+                swappableImageView.showPrevious(true);
+                assertEquals(0, swappableImageView.getQueuedSteps());
+            }
+        });
+    }
+
+    @Test
+    public void endingSwapMakesTargetCurrent() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final HorizontalSwappableImageBehavior b = mock(HorizontalSwappableImageBehavior.class);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setBehavior(b);
+                swappableImageView.setCurrentIndex(0);
+                swappableImageView.showNext(false);
+                swappableImageView.showNext(false);
+                assertEquals(1, swappableImageView.getQueuedSteps());
+
+                swappableImageView.recycle();
+                verify(b).onEnd(eq(false), any(ImageView.class), any(ImageView.class));
+                assertEquals(1, swappableImageView.getCurrentIndex());
+                assertEquals(1, swappableImageView.getTargetIndex());
+                assertEquals(0, swappableImageView.getQueuedSteps());
+            }
+        });
+    }
+
+    @Test
+    public void adapterChangesWhileDetachedAreCaughtUpOnAttach() {
+        final MockSwappableImageView swappableImageView = this.swappableImageView;
+        final int[] count = {5};
+        final SwappableImageAdapter adapter = new SwappableImageAdapter() {
+            @Override
+            public int getCount() {
+                return count[0];
+            }
+
+            @Override
+            public ImageSource getImageSource(int position) {
+                return ImageSource.fromAsset(position + ".png");
+            }
+        };
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Parcelable state = swappableImageView.onSaveInstanceState();
+                swappableImageView.setAdapter(2, adapter);
+                swappableImageView.onDetachedFromWindow();
+                count[0] = 7;
+                adapter.notifyItemRangeInserted(5, 2);
+                assertNull(swappableImageView.getImageSource(6));
+
+                swappableImageView.onAttachedToWindow();
+                assertEquals(ImageSource.fromAsset("6.png"), swappableImageView.getImageSource(6));
+                assertEquals(2, swappableImageView.getCurrentIndex());
+
+                swappableImageView.onRestoreInstanceState(state);
+                assertEquals(1, swappableImageView.getCurrentIndex());
+                assertSame(adapter, swappableImageView.getAdapter());
+                assertEquals(ImageSource.fromAsset("6.png"), swappableImageView.getImageSource(6));
+            }
+        });
+    }
+
+    @Test
+    public void sequencesTooLargeToParcelSaveOnlyTheIndex() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                SwappableImageView.SavedState state =
+                        (SwappableImageView.SavedState) swappableImageView.onSaveInstanceState();
+                assertArrayEquals(mockResIds, state.drawables);
+
+                ImageSource[] sources = new ImageSource[2000];
+                for (int i = 0; i < sources.length; i++) {
+                    sources[i] = ImageSource.fromFile(new File(mockContext.getCacheDir(),
+                            "images/a/long/enough/path/to/an/image/file/" + i + ".jpg"));
+                }
+                swappableImageView.setImageSources(3, sources);
+                state = (SwappableImageView.SavedState) swappableImageView.onSaveInstanceState();
+                assertNull(state.drawables);
+                assertNull(state.sources);
+                assertEquals(3, state.currentIndex);
+            }
+        });
+    }
+
+    @Test
+    public void forcedSwapCancelsSwapInProgress() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final HorizontalSwappableImageBehavior b = mock(HorizontalSwappableImageBehavior.class);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setBehavior(b);
+                swappableImageView.setCurrentIndex(0);
+                swappableImageView.showNext(false);
+                assertTrue(swappableImageView.isSwapping());
+
+                swappableImageView.showNext(true);
+                verify(b).onCancel(any(ImageView.class), any(ImageView.class));
+                verify(b, never()).onEnd(anyBoolean(), any(ImageView.class),
+                                         any(ImageView.class));
+                verify(b, times(2)).onStart(eq(false), any(ImageView.class),
+                                            any(ImageView.class));
+                assertTrue(swappableImageView.isSwapping());
+                assertEquals(0, swappableImageView.getCurrentIndex());
+                assertEquals(1, swappableImageView.getTargetIndex());
+            }
+        });
+    }
+
+    @Test
+    public void forcedSwapCancelsSettle() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final HorizontalSwappableImageBehavior b = mock(HorizontalSwappableImageBehavior.class);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setBehavior(b);
+                swappableImageView.setCurrentIndex(0);
+                assertTrue(swappableImageView.startScrub(false));
+                swappableImageView.scrub(0.5f);
+                swappableImageView.settleScrub(0.5f, true, 0);
+                assertTrue(swappableImageView.isSwapping());
+
+                swappableImageView.showNext(true);
+                verify(b).onCancel(any(ImageView.class), any(ImageView.class));
+                verify(b, never()).onEnd(anyBoolean(), any(ImageView.class),
+                                         any(ImageView.class));
+                assertEquals(0, swappableImageView.getCurrentIndex());
+                assertEquals(1, swappableImageView.getTargetIndex());
+            }
+        });
+    }
+
+    @Test
+    public void settleOnlyCountsVelocityTowardsTarget() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(250, getSettleDuration(0.75f, true, 1));
+                assertEquals(400, getSettleDuration(0.75f, true, -1));
+                assertEquals(250, getSettleDuration(0.25f, false, -1));
+                assertEquals(400, getSettleDuration(0.25f, false, 1));
+            }
+        });
+    }
+
+    private long getSettleDuration(float fraction, boolean commit, float velocity) {
+        SwappableImageView view = new MockSwappableImageView(mockContext);
+        view.setImageLoader(new ImageLoader(mockContext, DIRECT, DIRECT));
+        view.setDrawables(0, mockResIds);
+        view.setSwapDuration(400);
+        assertTrue(view.startScrub(false));
+        view.settleScrub(fraction, commit, velocity);
+        return view.getSettleDuration();
+    }
+
+    @Test
+    public void progressiveSwapShowsPlaceholderThenUpgrades() {
+        final SwappableImageView swappableImageView = this.swappableImageView;
+        final ImageCache cache = new ImageCache(1024 * 1024);
+        final ArrayList<Runnable> decodes = new ArrayList<>();
+        final boolean[] upgraded = new boolean[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                swappableImageView.setImageLoader(new ImageLoader(mockContext, DIRECT, DIRECT, cache));
+                swappableImageView.setDrawables(0, android.R.drawable.ic_menu_camera,
+                                                android.R.drawable.ic_menu_gallery);
+                swappableImageView.onLayout(true, 0, 0, 48, 48);
+                swappableImageView.setImageLoader(new ImageLoader(mockContext, new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable command) {
+                        decodes.add(command);
+                    }
+                }, DIRECT, cache));
+                swappableImageView.setProgressive(true);
+                swappableImageView.setOnImageUpgradeListener(new SwappableImageView.OnImageUpgradeListener() {
+                    @Override
+                    public void onImageUpgraded(ImageView target, boolean isThumbnail, long shownNanos) {
+                        upgraded[0] = true;
+                        assertFalse(isThumbnail);
+                    }
+                });
+
+                swappableImageView.showNext(true);
+                assertTrue(swappableImageView.isSwapping());
+                assertNotNull(swappableImageView.primary.getDrawable());
+                Drawable placeholder = swappableImageView.secondary.getDrawable();
+                assertTrue(placeholder instanceof PlaceholderDrawable);
+                assertFalse(((PlaceholderDrawable) placeholder).isUpgraded());
+                assertEquals(1, swappableImageView.getPlaceholderCount());
+
+                for (Runnable decode : new ArrayList<>(decodes)) {
+                    decode.run();
+                }
+                assertSame(placeholder, swappableImageView.secondary.getDrawable());
+                assertTrue(((PlaceholderDrawable) placeholder).isUpgraded());
+                assertTrue(upgraded[0]);
+            }
+        });
+    }
+
     private class MockSwappableImageView extends SwappableImageView {
 
         public MockSwappableImageView(Context context) {
@@ -0,0 +1,203 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import timber.log.Timber;
+
+/**
+ * Mutable bitmaps no longer drawn, kept to be decoded into again through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} instead of
+ * allocating. Bitmaps are grouped by their allocation size and a bitmap is
+ * reused for any decode that fits, up to twice its size to limit waste.
+ * Bitmaps are dropped once the byte budget is exceeded, largest first.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+public class BitmapPool {
+
+    /**
+     * Largest ratio between a pooled allocation and the decode reusing it
+     */
+    private static final int MAX_WASTE_RATIO = 2;
+
+    private static BitmapPool sInstance;
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> mBitmaps = new TreeMap<>();
+    private long mMaxSize;
+    private long mSize = 0;
+    private int mCount = 0;
+    private int hitCount = 0;
+    private int missCount = 0;
+
+    /**
+     * @param maxSize the byte budget of the pool
+     */
+    public BitmapPool(long maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Get the pool shared by every view in the process, sized to a sixteenth
+     * of the available heap by default
+     *
+     * @return the shared bitmap pool
+     */
+    public static synchronized BitmapPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Check if bitmaps can be decoded into bitmaps of a different size on this
+     * platform, which the pool relies on
+     *
+     * @return true if the pool can be used
+     */
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    }
+
+    /**
+     * Add a bitmap that will no longer be drawn. Bitmaps that are immutable,
+     * recycled or larger than the whole budget are not kept.
+     *
+     * @param bitmap the bitmap to reuse
+     */
+    public synchronized void put(@NonNull Bitmap bitmap) {
+        if (!isSupported() || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        int size = getSize(bitmap);
+        if (size > mMaxSize) {
+            return;
+        }
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(size);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mBitmaps.put(size, bitmaps);
+        }
+        bitmaps.push(bitmap);
+        mSize += size;
+        mCount++;
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Take a bitmap large enough to decode the byte count given into
+     *
+     * @param byteCount the bytes the decode needs
+     * @return the bitmap to decode into or null if none fits
+     */
+    @Nullable
+    public synchronized Bitmap get(int byteCount) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = mBitmaps.ceilingEntry(byteCount);
+        if (entry == null || entry.getKey() > (long) byteCount * MAX_WASTE_RATIO) {
+            missCount++;
+            return null;
+        }
+        ArrayDeque<Bitmap> bitmaps = entry.getValue();
+        Bitmap bitmap = bitmaps.pop();
+        if (bitmaps.isEmpty()) {
+            mBitmaps.remove(entry.getKey());
+        }
+        mSize -= entry.getKey();
+        mCount--;
+        hitCount++;
+        return bitmap;
+    }
+
+    /**
+     * Drop bitmaps, largest first, until the pool fits the size given
+     *
+     * @param maxSize the byte size to trim to
+     * @return the bytes freed
+     */
+    public synchronized long trimToSize(long maxSize) {
+        long size = mSize;
+        Iterator<Map.Entry<Integer, ArrayDeque<Bitmap>>> it = mBitmaps.descendingMap().entrySet().iterator();
+        while (mSize > maxSize && it.hasNext()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> entry = it.next();
+            ArrayDeque<Bitmap> bitmaps = entry.getValue();
+            while (mSize > maxSize && !bitmaps.isEmpty()) {
+                bitmaps.removeLast();
+                mSize -= entry.getKey();
+                mCount--;
+            }
+            if (bitmaps.isEmpty()) {
+                it.remove();
+            }
+        }
+        if (size != mSize) {
+            Timber.d("pool trimmed: %s", size - mSize);
+        }
+        return size - mSize;
+    }
+
+    /**
+     * Drop every pooled bitmap
+     *
+     * @return the bytes freed
+     */
+    public synchronized long clear() {
+        return trimToSize(0);
+    }
+
+    /**
+     * Set the byte budget, trimming the pool if it is now over budget
+     *
+     * @param maxSize the byte budget of the pool
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return the bytes held by pooled bitmaps
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    public synchronized int getBitmapCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the number of decodes that reused a pooled bitmap
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of decodes that found no pooled bitmap to reuse
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the bytes a bitmap can hold
+     *
+     * @param bitmap the pooled bitmap
+     * @return the allocation size in bytes
+     */
+    protected int getSize(@NonNull Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+}
@@ -0,0 +1,525 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Size bounded cache of encoded images in a directory, so images decoded and
+ * scaled once can be read back in their compact form on later launches.
+ * Entries are written to a temporary file and only published once complete,
+ * and every change is recorded in an append only journal so the cache
+ * recovers from a crash at any point. Entries are evicted least recently used
+ * first once the byte budget is exceeded. Opening the cache reads the
+ * directory so it should be done off the main thread.
+ */
+public class DiskCache {
+
+    static final String JOURNAL = "journal";
+    private static final String JOURNAL_TMP = "journal.tmp";
+    private static final String MAGIC = "swappable.DiskCache";
+    private static final String CLEAN = "CLEAN";
+    private static final String DIRTY = "DIRTY";
+    private static final String REMOVE = "REMOVE";
+    private static final String READ = "READ";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Journal lines beyond the live entries allowed before the journal is
+     * rewritten
+     */
+    private static final int MAX_REDUNDANT_LINES = 1000;
+
+    private final File mDirectory;
+    private final int mVersion;
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> mEditing = new HashSet<>();
+    private long mMaxSize;
+    private long mSize = 0;
+    private int redundantCount = 0;
+    private Writer mJournal;
+
+    /**
+     * Open the cache in the directory, replaying its journal. The cache is
+     * cleared if it was written by another version, for example when resource
+     * ids may have changed after an app update.
+     *
+     * @param directory the directory to store entries in
+     * @param version   the version of the entries, usually the app version code
+     * @param maxSize   the byte budget of the cache
+     * @throws IOException if the directory could not be read or written
+     */
+    public DiskCache(@NonNull File directory, int version, long maxSize) throws IOException {
+        mDirectory = directory;
+        mVersion = version;
+        mMaxSize = maxSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create " + directory);
+        }
+        File journal = new File(directory, JOURNAL);
+        if (journal.exists()) {
+            try {
+                readJournal(journal);
+            } catch (IOException e) {
+                Timber.w(e, "disk cache journal corrupt");
+                mEntries.clear();
+                mSize = 0;
+                deleteContents();
+            }
+        }
+        rewriteJournal();
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Open an entry for reading, marking it as recently used
+     *
+     * @param key the entry key
+     * @return the stream of the entry which the caller must close, or null if
+     * it is not cached
+     */
+    @Nullable
+    public synchronized InputStream get(@NonNull String key) {
+        String name = getFileName(key);
+        if (mEntries.get(name) == null) {
+            return null;
+        }
+        try {
+            InputStream in = new FileInputStream(new File(mDirectory, name));
+            appendJournal(READ, name);
+            return in;
+        } catch (FileNotFoundException e) {
+            removeEntry(name);
+            return null;
+        } catch (IOException e) {
+            Timber.w(e);
+            return null;
+        }
+    }
+
+    /**
+     * Check if an entry is cached
+     *
+     * @param key the entry key
+     * @return true if the entry can be read
+     */
+    public synchronized boolean contains(@NonNull String key) {
+        return mEntries.containsKey(getFileName(key));
+    }
+
+    /**
+     * Start writing an entry, which replaces any cached one once committed
+     *
+     * @param key the entry key
+     * @return the editor or null if the entry is already being written
+     * @throws IOException if the entry could not be created
+     */
+    @Nullable
+    public synchronized Editor edit(@NonNull String key) throws IOException {
+        String name = getFileName(key);
+        if (mEditing.contains(name)) {
+            return null;
+        }
+        File tmp = new File(mDirectory, name + TMP_SUFFIX);
+        OutputStream out = new FileOutputStream(tmp);
+        mEditing.add(name);
+        appendJournal(DIRTY, name);
+        return new Editor(name, tmp, out);
+    }
+
+    /**
+     * Write a whole entry at once
+     *
+     * @param key  the entry key
+     * @param data the entry contents
+     * @return true if the entry was written
+     * @throws IOException if the entry could not be written
+     */
+    public boolean put(@NonNull String key, @NonNull byte[] data) throws IOException {
+        Editor editor = edit(key);
+        if (editor == null) {
+            return false;
+        }
+        try {
+            editor.getOutputStream().write(data);
+        } catch (IOException e) {
+            editor.abort();
+            throw e;
+        }
+        return editor.commit();
+    }
+
+    /**
+     * Remove an entry
+     *
+     * @param key the entry key
+     * @return true if the entry was cached
+     */
+    public synchronized boolean remove(@NonNull String key) {
+        return removeEntry(getFileName(key));
+    }
+
+    /**
+     * Evict entries, least recently used first, until the cache fits the size
+     * given
+     *
+     * @param maxSize the byte size to trim to
+     * @return the bytes freed
+     */
+    public synchronized long trimToSize(long maxSize) {
+        long size = mSize;
+        Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+        while (mSize > maxSize && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            it.remove();
+            mSize -= entry.getValue();
+            deleteIfExists(new File(mDirectory, entry.getKey()));
+            appendJournal(REMOVE, entry.getKey());
+            Timber.d("disk evicted: %s", entry.getKey());
+        }
+        return size - mSize;
+    }
+
+    /**
+     * Set the byte budget, trimming the cache if it is now over budget
+     *
+     * @param maxSize the byte budget of the cache
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return the bytes held by committed entries
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return mEntries.size();
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    /**
+     * Close the journal, the cache can not be used afterwards
+     *
+     * @throws IOException if the journal could not be closed
+     */
+    public synchronized void close() throws IOException {
+        if (mJournal != null) {
+            mJournal.close();
+            mJournal = null;
+        }
+    }
+
+    /**
+     * Publish an entry once its temporary file is complete
+     */
+    private synchronized boolean complete(Editor editor, boolean success) throws IOException {
+        mEditing.remove(editor.mName);
+        File file = new File(mDirectory, editor.mName);
+        if (!success) {
+            deleteIfExists(editor.mTmp);
+            Long length = mEntries.get(editor.mName);
+            if (length != null) {
+                appendJournal(CLEAN, editor.mName + " " + length);
+            } else {
+                appendJournal(REMOVE, editor.mName);
+            }
+            return false;
+        }
+        Long previous = mEntries.remove(editor.mName);
+        if (previous != null) {
+            mSize -= previous;
+        }
+        deleteIfExists(file);
+        if (!editor.mTmp.renameTo(file)) {
+            deleteIfExists(editor.mTmp);
+            appendJournal(REMOVE, editor.mName);
+            return false;
+        }
+        long length = file.length();
+        mEntries.put(editor.mName, length);
+        mSize += length;
+        appendJournal(CLEAN, editor.mName + " " + length);
+        trimToSize(mMaxSize);
+        return true;
+    }
+
+    private boolean removeEntry(String name) {
+        Long length = mEntries.remove(name);
+        if (length == null) {
+            return false;
+        }
+        mSize -= length;
+        deleteIfExists(new File(mDirectory, name));
+        appendJournal(REMOVE, name);
+        return true;
+    }
+
+    /**
+     * Replay the journal, dropping entries that were never committed or whose
+     * file is gone. A last line cut short by a crash while it was appended is
+     * ignored, the journal is rewritten from the entries read before it.
+     */
+    private void readJournal(File journal) throws IOException {
+        String text = readFully(journal);
+        int end = text.lastIndexOf('\n') + 1;
+        if (end < text.length()) {
+            Timber.w("disk cache journal ends in an incomplete line: %s", text.substring(end));
+        }
+        BufferedReader reader = new BufferedReader(new StringReader(text.substring(0, end)));
+        try {
+            String magic = reader.readLine();
+            String version = reader.readLine();
+            if (!MAGIC.equals(magic) || !String.valueOf(mVersion).equals(version)) {
+                throw new IOException("unexpected journal header: " + magic + ", " + version);
+            }
+            Set<String> dirty = new HashSet<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length < 2) {
+                    throw new IOException("unexpected journal line: " + line);
+                }
+                String name = parts[1];
+                if (CLEAN.equals(parts[0]) && parts.length == 3) {
+                    dirty.remove(name);
+                    Long previous = mEntries.put(name, Long.parseLong(parts[2]));
+                    mSize += Long.parseLong(parts[2]) - (previous == null ? 0 : previous);
+                } else if (DIRTY.equals(parts[0])) {
+                    dirty.add(name);
+                } else if (REMOVE.equals(parts[0])) {
+                    dirty.remove(name);
+                    Long previous = mEntries.remove(name);
+                    if (previous != null) {
+                        mSize -= previous;
+                    }
+                } else if (READ.equals(parts[0])) {
+                    mEntries.get(name);
+                } else {
+                    throw new IOException("unexpected journal line: " + line);
+                }
+            }
+            for (String name : dirty) {
+                deleteIfExists(new File(mDirectory, name + TMP_SUFFIX));
+                if (!mEntries.containsKey(name)) {
+                    // published before the crash cut its clean line short
+                    deleteIfExists(new File(mDirectory, name));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("unexpected journal size", e);
+        } finally {
+            reader.close();
+        }
+        Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            File file = new File(mDirectory, entry.getKey());
+            if (file.length() != entry.getValue()) {
+                mSize -= entry.getValue();
+                deleteIfExists(file);
+                it.remove();
+            }
+        }
+    }
+
+    private static String readFully(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+        try {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[8192];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            return builder.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Write a journal holding only the live entries, replacing the current
+     * one atomically once it is on disk
+     */
+    private synchronized void rewriteJournal() throws IOException {
+        if (mJournal != null) {
+            mJournal.close();
+        }
+        File tmp = new File(mDirectory, JOURNAL_TMP);
+        FileOutputStream out = new FileOutputStream(tmp);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        try {
+            writer.write(MAGIC + "\n" + mVersion + "\n");
+            for (Map.Entry<String, Long> entry : mEntries.entrySet()) {
+                writer.write(CLEAN + " " + entry.getKey() + " " + entry.getValue() + "\n");
+            }
+            for (String name : mEditing) {
+                writer.write(DIRTY + " " + name + "\n");
+            }
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            writer.close();
+        }
+        File journal = new File(mDirectory, JOURNAL);
+        if (!tmp.renameTo(journal)) {
+            throw new IOException("could not replace " + journal);
+        }
+        mJournal = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true), UTF_8));
+        redundantCount = 0;
+    }
+
+    private void appendJournal(String op, String args) {
+        if (mJournal == null) {
+            return;
+        }
+        try {
+            mJournal.write(op + " " + args + "\n");
+            mJournal.flush();
+            if (!CLEAN.equals(op) && !DIRTY.equals(op) && ++redundantCount > MAX_REDUNDANT_LINES) {
+                rewriteJournal();
+            }
+        } catch (IOException e) {
+            Timber.w(e, "disk cache journal write failed");
+        }
+    }
+
+    /**
+     * Delete everything in the directory, used when the journal can not be
+     * trusted
+     */
+    private void deleteContents() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void deleteIfExists(File file) {
+        if (file.exists() && !file.delete()) {
+            Timber.w("could not delete %s", file);
+        }
+    }
+
+    /**
+     * Get the file name of a key, a hash so any key maps to a safe name
+     *
+     * @param key the entry key
+     * @return the hex encoded hash of the key
+     */
+    static String getFileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Writes a single entry, which is only visible to readers once committed
+     */
+    public class Editor {
+        private final String mName;
+        private final File mTmp;
+        private final OutputStream mOut;
+        private boolean isDone = false;
+
+        Editor(String name, File tmp, OutputStream out) {
+            mName = name;
+            mTmp = tmp;
+            mOut = new BufferedOutputStream(out);
+        }
+
+        /**
+         * @return the stream to write the entry contents to
+         */
+        public OutputStream getOutputStream() {
+            return mOut;
+        }
+
+        /**
+         * Publish the entry written, replacing any cached one
+         *
+         * @return true if the entry was published
+         * @throws IOException if the entry could not be written
+         */
+        public boolean commit() throws IOException {
+            if (isDone) {
+                return false;
+            }
+            isDone = true;
+            boolean isWritten = false;
+            try {
+                mOut.close();
+                isWritten = true;
+            } finally {
+                if (!isWritten) {
+                    complete(this, false);
+                }
+            }
+            return complete(this, true);
+        }
+
+        /**
+         * Drop the entry written, leaving any cached one in place
+         */
+        public void abort() {
+            if (isDone) {
+                return;
+            }
+            isDone = true;
+            try {
+                mOut.close();
+                complete(this, false);
+            } catch (IOException e) {
+                Timber.w(e);
+            }
+        }
+    }
+}
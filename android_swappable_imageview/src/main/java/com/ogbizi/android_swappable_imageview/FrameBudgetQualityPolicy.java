@@ -0,0 +1,115 @@
+package com.ogbizi.android_swappable_imageview;
+
+import timber.log.Timber;
+
+/**
+ * Quality policy degrading a level once a swap drops a number of frames, a
+ * frame being dropped when it comes later than one and a half frame
+ * intervals after the one before. A level is recovered after a number of
+ * swaps in a row drop no frames. Swaps skipped at {@link #QUALITY_MINIMAL}
+ * have no frames to judge, so after that many of them one swap is played at
+ * {@link #QUALITY_REDUCED} to probe and the policy stays there only if it
+ * drops no frames.
+ */
+public class FrameBudgetQualityPolicy implements SwapQualityPolicy {
+
+    private static final int DEFAULT_MAX_DROPPED_FRAMES = 3;
+    private static final int DEFAULT_RECOVERY_SWAPS = 3;
+
+    private final int mMaxDroppedFrames;
+    private final int mRecoverySwaps;
+    private int mQuality = QUALITY_FULL;
+    private long mBudgetNanos = 0;
+    private long mLastFrameNanos = -1;
+    private int droppedCount = 0;
+    private int healthyCount = 0;
+    private boolean wasDegraded = false;
+    private int skippedCount = 0;
+    private boolean isSkipped = false;
+    private boolean isProbing = false;
+
+    public FrameBudgetQualityPolicy() {
+        this(DEFAULT_MAX_DROPPED_FRAMES, DEFAULT_RECOVERY_SWAPS);
+    }
+
+    /**
+     * @param maxDroppedFrames the frames a swap can drop before degrading
+     * @param recoverySwaps    the swaps in a row without dropped frames
+     *                         before recovering
+     */
+    public FrameBudgetQualityPolicy(int maxDroppedFrames, int recoverySwaps) {
+        mMaxDroppedFrames = Math.max(1, maxDroppedFrames);
+        mRecoverySwaps = Math.max(1, recoverySwaps);
+    }
+
+    @Override
+    public int onSwapStart(long frameIntervalNanos) {
+        mBudgetNanos = frameIntervalNanos + frameIntervalNanos / 2;
+        mLastFrameNanos = -1;
+        droppedCount = 0;
+        wasDegraded = false;
+        isSkipped = false;
+        if (mQuality == QUALITY_MINIMAL) {
+            if (skippedCount < mRecoverySwaps) {
+                skippedCount++;
+                isSkipped = true;
+                return mQuality;
+            }
+            skippedCount = 0;
+            isProbing = true;
+            mQuality = QUALITY_REDUCED;
+            Timber.i("quality probe: %s", mQuality);
+        }
+        return mQuality;
+    }
+
+    @Override
+    public int onFrame(long frameTimeNanos) {
+        long lastFrameNanos = mLastFrameNanos;
+        mLastFrameNanos = frameTimeNanos;
+        if (lastFrameNanos < 0 || frameTimeNanos - lastFrameNanos <= mBudgetNanos) {
+            return mQuality;
+        }
+        droppedCount++;
+        if (droppedCount >= mMaxDroppedFrames && mQuality < QUALITY_MINIMAL) {
+            mQuality++;
+            droppedCount = 0;
+            wasDegraded = true;
+            Timber.i("quality degraded: %s", mQuality);
+        }
+        return mQuality;
+    }
+
+    @Override
+    public void onSwapEnd() {
+        if (isSkipped) {
+            return;
+        }
+        if (isProbing) {
+            isProbing = false;
+            if (droppedCount > 0 || wasDegraded) {
+                mQuality = QUALITY_MINIMAL;
+                Timber.i("quality probe failed");
+            }
+            healthyCount = 0;
+            return;
+        }
+        if (droppedCount > 0 || wasDegraded) {
+            healthyCount = 0;
+            return;
+        }
+        healthyCount++;
+        if (healthyCount >= mRecoverySwaps && mQuality > QUALITY_FULL) {
+            mQuality--;
+            healthyCount = 0;
+            Timber.i("quality recovered: %s", mQuality);
+        }
+    }
+
+    /**
+     * @return the quality the next swap will start at
+     */
+    public int getQuality() {
+        return mQuality;
+    }
+}
@@ -3,18 +3,45 @@ package com.ogbizi.android_swappable_imageview;
 import android.view.View;
 import android.widget.ImageView;
 
-import com.ogbizi.android_swappable_imageview.SwappableImageView.Behavior;
-
-import java.util.List;
+import com.ogbizi.android_swappable_imageview.SwappableImageView.LayeredBehavior;
 
 import timber.log.Timber;
 
 /**
  * Sample implementation of swappable image behavior
- * Swaps images by sliding horizontally out of view
+ * Swaps images by sliding horizontally out of view, see
+ * {@link KeyframeHorizontalBehavior} for the same slide played from keyframes
  */
-public class HorizontalSwappableImageBehavior implements Behavior {
+public class HorizontalSwappableImageBehavior implements LayeredBehavior {
     private SwappableImageView mView;
+    private int mLayerType = View.LAYER_TYPE_NONE;
+
+    public HorizontalSwappableImageBehavior() {
+    }
+
+    /**
+     * @param layerType the layer type to promote the image views to while
+     *                  sliding, see {@link #setSwapLayerType}
+     */
+    public HorizontalSwappableImageBehavior(int layerType) {
+        mLayerType = layerType;
+    }
+
+    /**
+     * Set the layer type used while sliding. Since sliding only translates the
+     * image views a {@link View#LAYER_TYPE_HARDWARE} layer lets complex
+     * drawables be drawn once per swap instead of every frame.
+     *
+     * @param layerType one of the {@link View} layer types
+     */
+    public void setSwapLayerType(int layerType) {
+        mLayerType = layerType;
+    }
+
+    @Override
+    public int getSwapLayerType() {
+        return mLayerType;
+    }
 
     @Override
     public void onAttach(SwappableImageView view) {
@@ -26,9 +53,7 @@ public class HorizontalSwappableImageBehavior implements Behavior {
         Timber.i("behaviour reset");
         secondary.setTranslationX(0);
         secondary.setTranslationY(mView.getMeasuredWidth());
-        List drawables = mView.getDrawables();
-        int index = mView.getCurrentIndex();
-        primary.setImageResource((Integer) drawables.get(index));
+        mView.bindImage(primary, mView.getCurrentIndex());
         primary.setTranslationX(0);
         primary.setTranslationY(0);
     }
@@ -37,8 +62,7 @@ public class HorizontalSwappableImageBehavior implements Behavior {
     public void onStart(boolean isReverse, ImageView primary, ImageView secondary) {
         Timber.i("behaviour start: reverse=%s", isReverse);
         onReset(primary, secondary);
-        View parent = (View) secondary.getParent();
-        int sX = isReverse ? parent.getMeasuredWidth() : -secondary.getMeasuredWidth();
+        int sX = isReverse ? mView.getMeasuredWidth() : -secondary.getMeasuredWidth();
         int sY = 0;
         secondary.setTranslationX(sX);
         secondary.setTranslationY(sY);
@@ -46,9 +70,10 @@ public class HorizontalSwappableImageBehavior implements Behavior {
 
     @Override
     public void onUpdate(float progress, boolean isReverse, ImageView primary, ImageView secondary) {
-        Timber.i("behaviour update: progress=%s", progress);
         float realProgress = isReverse ? 1 - progress : progress;
-        Timber.d("real progress: %s", realProgress * 100);
+        if (SwappableImageView.LOG_FRAMES) {
+            Timber.d("behaviour update: progress=%s", realProgress);
+        }
         int x0 = secondary.getMeasuredWidth() * (isReverse ? -1 : 1);
         int x1 = 0;
         int x2 = primary.getMeasuredWidth() * (isReverse ? 1 : -1);
@@ -61,10 +86,6 @@ public class HorizontalSwappableImageBehavior implements Behavior {
     @Override
     public void onEnd(boolean isReverse, ImageView primary, ImageView secondary) {
         Timber.i("behaviour end: reverse=%s", isReverse);
-        int prevIdx = mView.getPreviousIndex();
-        int nextIdx = mView.getNextIndex();
-        mView.setCurrentIndex(isReverse ? prevIdx : nextIdx);
-        onReset(primary, secondary);
     }
 
     @Override
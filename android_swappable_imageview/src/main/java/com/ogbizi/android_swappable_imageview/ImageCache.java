@@ -0,0 +1,593 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import timber.log.Timber;
+
+/**
+ * Process wide cache of decoded drawables keyed by resource and target size.
+ * Entries are evicted least recently used first once the byte budget is
+ * exceeded, except those still referenced by a view which are never evicted.
+ * Under memory pressure prefetched entries are dropped first, then every
+ * unreferenced entry.
+ */
+public class ImageCache implements ComponentCallbacks2 {
+
+    private static ImageCache sInstance;
+
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMaxSize;
+    private long mSize = 0;
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+    private boolean isRegistered = false;
+    private OnTrimListener mTrimListener;
+    private BitmapPool mPool;
+    private final ArrayList<Bitmap> mRetired = new ArrayList<>();
+    private Executor mFrameExecutor = new NextFrameExecutor();
+    private boolean isPoolingPosted = false;
+
+    private final Runnable mPoolRetired = new Runnable() {
+        @Override
+        public void run() {
+            poolRetired();
+        }
+    };
+
+    /**
+     * @param maxSize the byte budget of the cache
+     */
+    public ImageCache(long maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Get the cache shared by every view in the process, sized to an eighth
+     * of the available heap by default
+     *
+     * @return the shared image cache
+     */
+    public static synchronized ImageCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new ImageCache(Runtime.getRuntime().maxMemory() / 8);
+            sInstance.setBitmapPool(BitmapPool.getInstance());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Get a new drawable sharing the cached decode and take a reference to
+     * the entry, every acquire must be paired with a {@link #release}
+     *
+     * @param key the entry key
+     * @return the drawable or null if not cached
+     */
+    @Nullable
+    public synchronized Drawable acquire(@NonNull Key key) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        entry.refCount++;
+        entry.isPrefetched = false;
+        return entry.state.newDrawable();
+    }
+
+    /**
+     * Check if a decode is cached without counting a hit or miss
+     *
+     * @param key the entry key
+     * @return true if the entry is cached
+     */
+    public synchronized boolean contains(@NonNull Key key) {
+        return mEntries.containsKey(key);
+    }
+
+    /**
+     * Add a decoded drawable to the cache and take a reference to it. If the
+     * key was cached in the meantime the existing entry is referenced instead.
+     *
+     * @param key      the entry key
+     * @param drawable the decoded drawable
+     * @return the drawable to display, sharing the cached decode if possible
+     */
+    public synchronized Drawable put(@NonNull Key key, @NonNull Drawable drawable) {
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            entry.refCount++;
+            entry.isPrefetched = false;
+            recycle(getBitmap(drawable));
+            return entry.state.newDrawable();
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        if (state == null) {
+            return drawable;
+        }
+        entry = new Entry(state, getBitmap(drawable), sizeOf(drawable));
+        entry.refCount = 1;
+        mEntries.put(key, entry);
+        mSize += entry.size;
+        trimToSize(mMaxSize);
+        return drawable;
+    }
+
+    /**
+     * Add a drawable decoded ahead of time without taking a reference, it is
+     * the first to be dropped under memory pressure until it is acquired
+     *
+     * @param key      the entry key
+     * @param drawable the decoded drawable
+     * @return true if the drawable was added, false if it was not cacheable
+     * or the key was cached in the meantime
+     */
+    public synchronized boolean putPrefetched(@NonNull Key key, @NonNull Drawable drawable) {
+        Drawable.ConstantState state = drawable.getConstantState();
+        if (state == null || mEntries.containsKey(key)) {
+            recycle(getBitmap(drawable));
+            return false;
+        }
+        Entry entry = new Entry(state, getBitmap(drawable), sizeOf(drawable));
+        entry.isPrefetched = true;
+        mEntries.put(key, entry);
+        mSize += entry.size;
+        trimToSize(mMaxSize);
+        return true;
+    }
+
+    /**
+     * Take another reference to a cached entry without counting a hit
+     *
+     * @param key the entry key
+     * @return true if the entry is cached and a reference was taken
+     */
+    synchronized boolean retain(@NonNull Key key) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.refCount++;
+        return true;
+    }
+
+    /**
+     * Drop a reference taken by {@link #acquire}, {@link #put} or
+     * {@link #retain}, the entry
+     * becomes evictable once no references remain
+     *
+     * @param key the entry key
+     */
+    public synchronized void release(@NonNull Key key) {
+        Entry entry = mEntries.get(key);
+        if (entry != null && entry.refCount > 0) {
+            entry.refCount--;
+            if (entry.refCount == 0) {
+                trimToSize(mMaxSize);
+            }
+        }
+    }
+
+    /**
+     * Evict unreferenced entries, least recently used first, until the cache
+     * fits the size given or only referenced entries remain
+     *
+     * @param maxSize the byte size to trim to
+     * @return the bytes freed
+     */
+    public synchronized long trimToSize(long maxSize) {
+        long size = mSize;
+        Iterator<Map.Entry<Key, Entry>> it = mEntries.entrySet().iterator();
+        while (mSize > maxSize && it.hasNext()) {
+            Map.Entry<Key, Entry> next = it.next();
+            Entry entry = next.getValue();
+            if (entry.refCount == 0) {
+                it.remove();
+                mSize -= entry.size;
+                evictionCount++;
+                recycle(entry.bitmap);
+                Timber.d("evicted: %s", next.getKey());
+            }
+        }
+        return size - mSize;
+    }
+
+    /**
+     * Evict every unreferenced entry
+     *
+     * @return the bytes freed
+     */
+    public synchronized long evictAll() {
+        return trimToSize(0);
+    }
+
+    /**
+     * Evict every prefetched entry that has not been acquired since
+     *
+     * @return the bytes freed
+     */
+    public synchronized long evictPrefetched() {
+        long size = mSize;
+        Iterator<Entry> it = mEntries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.isPrefetched && entry.refCount == 0) {
+                it.remove();
+                mSize -= entry.size;
+                evictionCount++;
+                recycle(entry.bitmap);
+            }
+        }
+        return size - mSize;
+    }
+
+    /**
+     * Evict a single entry if it is no longer referenced, reporting the bytes
+     * freed to the trim listener
+     *
+     * @param key   the entry key
+     * @param level the trim level the entry is evicted for
+     * @return the bytes freed
+     */
+    synchronized long evict(@NonNull Key key, int level) {
+        Entry entry = mEntries.get(key);
+        if (entry == null || entry.refCount > 0) {
+            return 0;
+        }
+        mEntries.remove(key);
+        mSize -= entry.size;
+        evictionCount++;
+        recycle(entry.bitmap);
+        reportTrim(level, entry.size);
+        return entry.size;
+    }
+
+    /**
+     * Free memory for the trim level given, dropping prefetched entries from
+     * {@link #TRIM_MEMORY_RUNNING_MODERATE} and every unreferenced entry and
+     * pooled bitmap from {@link #TRIM_MEMORY_RUNNING_LOW} and when the app is
+     * in the background. Bitmaps evicted here are not pooled.
+     * Views downsample the images they display from
+     * {@link #TRIM_MEMORY_RUNNING_CRITICAL}.
+     *
+     * @param level the trim level from {@link ComponentCallbacks2}
+     * @return the bytes freed
+     */
+    public synchronized long trimMemory(int level) {
+        BitmapPool pool = mPool;
+        mPool = null;
+        long freed = 0;
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            freed += evictPrefetched();
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            freed += evictAll();
+            mRetired.clear();
+            if (pool != null) {
+                freed += pool.clear();
+            }
+        }
+        mPool = pool;
+        reportTrim(level, freed);
+        return freed;
+    }
+
+    private void reportTrim(int level, long freed) {
+        Timber.i("trim memory: level=%s, freed=%s", level, freed);
+        if (mTrimListener != null) {
+            mTrimListener.onTrimmed(level, freed);
+        }
+    }
+
+    /**
+     * Set the pool the bitmaps of evicted entries are returned to for reuse
+     *
+     * @param pool the bitmap pool or null to drop evicted bitmaps
+     */
+    public synchronized void setBitmapPool(@Nullable BitmapPool pool) {
+        mPool = pool;
+    }
+
+    /**
+     * Get the pool the bitmaps of evicted entries are returned to
+     *
+     * @return the bitmap pool or null if evicted bitmaps are dropped
+     */
+    @Nullable
+    public synchronized BitmapPool getBitmapPool() {
+        return mPool;
+    }
+
+    /**
+     * Return a bitmap that is no longer drawn to the pool once the next frame
+     * starts, the frame before may still draw it
+     *
+     * @param bitmap the bitmap or null if the drawable had none
+     */
+    private void recycle(@Nullable Bitmap bitmap) {
+        if (mPool != null && bitmap != null) {
+            mRetired.add(bitmap);
+            if (!isPoolingPosted) {
+                isPoolingPosted = true;
+                mFrameExecutor.execute(mPoolRetired);
+            }
+        }
+    }
+
+    private synchronized void poolRetired() {
+        isPoolingPosted = false;
+        if (mPool != null) {
+            for (Bitmap bitmap : mRetired) {
+                mPool.put(bitmap);
+            }
+        }
+        mRetired.clear();
+    }
+
+    /**
+     * Set the executor returning evicted bitmaps to the pool, for tests to
+     * run it in place of waiting on the next frame
+     *
+     * @param executor the executor run once the bitmaps are no longer drawn
+     */
+    synchronized void setFrameExecutor(@NonNull Executor executor) {
+        mFrameExecutor = executor;
+    }
+
+    @Nullable
+    private static Bitmap getBitmap(@NonNull Drawable drawable) {
+        return drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+    }
+
+    /**
+     * Set the listener to report the bytes freed by every memory trim to
+     *
+     * @param listener the trim listener or null to stop reporting
+     */
+    public synchronized void setOnTrimListener(OnTrimListener listener) {
+        mTrimListener = listener;
+    }
+
+    /**
+     * Register with the application to trim on memory pressure, registering
+     * again has no effect
+     *
+     * @param context a context of the application
+     */
+    public synchronized void registerComponentCallbacks(@NonNull Context context) {
+        if (!isRegistered) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+            isRegistered = true;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        trimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Set the byte budget, trimming the cache if it is now over budget
+     *
+     * @param maxSize the byte budget of the cache
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return the bytes held by all entries including referenced ones
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return mEntries.size();
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of references held on an entry
+     *
+     * @param key the entry key
+     * @return the reference count or 0 if not cached
+     */
+    public synchronized int getRefCount(@NonNull Key key) {
+        Entry entry = mEntries.get(key);
+        return entry == null ? 0 : entry.refCount;
+    }
+
+    /**
+     * Estimate the bytes held by a drawable
+     *
+     * @param drawable the decoded drawable
+     * @return the size in bytes
+     */
+    protected long sizeOf(@NonNull Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null) {
+                return bitmap.getByteCount();
+            }
+        }
+        int width = Math.max(1, drawable.getIntrinsicWidth());
+        int height = Math.max(1, drawable.getIntrinsicHeight());
+        return width * height * 4L;
+    }
+
+    /**
+     * Get if an entry was prefetched and not acquired since
+     *
+     * @param key the entry key
+     * @return true if the entry is prefetched
+     */
+    public synchronized boolean isPrefetched(@NonNull Key key) {
+        Entry entry = mEntries.get(key);
+        return entry != null && entry.isPrefetched;
+    }
+
+    /**
+     * Listener for the memory freed on memory pressure
+     */
+    public interface OnTrimListener {
+        /**
+         * Called after memory was freed for a trim level
+         *
+         * @param level the trim level from {@link ComponentCallbacks2}
+         * @param bytes the bytes freed
+         */
+        void onTrimmed(int level, long bytes);
+    }
+
+    /**
+     * Identity of a decoded image, a source decoded for a target size
+     */
+    public static final class Key {
+        @Nullable
+        public final ImageSource source;
+        public final int width;
+        public final int height;
+
+        /**
+         * @param source the image source or null for no image
+         * @param width  the target width or 0 for the original size
+         * @param height the target height or 0 for the original size
+         */
+        public Key(@Nullable ImageSource source, int width, int height) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @param resId  the drawable resource id or 0 for no image
+         * @param width  the target width or 0 for the original size
+         * @param height the target height or 0 for the original size
+         */
+        public Key(@DrawableRes int resId, int width, int height) {
+            this(resId == 0 ? null : ImageSource.fromResource(resId), width, height);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height
+                    && (source == null ? key.source == null : source.equals(key.source));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = source == null ? 0 : source.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return source + "@" + width + "x" + height;
+        }
+    }
+
+    /**
+     * Runs commands on the main thread at the start of the next frame, or a
+     * frame later before choreographer was available
+     */
+    private static final class NextFrameExecutor implements Executor {
+        private static final long FRAME_MILLIS = 16;
+
+        private Handler mHandler;
+
+        @Override
+        public synchronized void execute(@NonNull final Runnable command) {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                mHandler.postDelayed(command, FRAME_MILLIS);
+                return;
+            }
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    postFrameCallback(command);
+                }
+            });
+        }
+
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+        private static void postFrameCallback(final Runnable command) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    command.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Cached decode shared between drawables
+     */
+    private static final class Entry {
+        final Drawable.ConstantState state;
+        final Bitmap bitmap;
+        final long size;
+        int refCount = 0;
+        boolean isPrefetched = false;
+
+        Entry(Drawable.ConstantState state, Bitmap bitmap, long size) {
+            this.state = state;
+            this.bitmap = bitmap;
+            this.size = size;
+        }
+    }
+}
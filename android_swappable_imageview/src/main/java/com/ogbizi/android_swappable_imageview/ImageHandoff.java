@@ -0,0 +1,232 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import timber.log.Timber;
+
+/**
+ * Holds the decodes of views saving their state until the views recreated
+ * from that state claim them, so a configuration change redraws from memory.
+ * Each handoff keeps a cache reference to its decodes and is released if it
+ * is not claimed by the time an activity resumes, when the activity that
+ * saved it finishes or when the app goes to the background.
+ */
+final class ImageHandoff implements Application.ActivityLifecycleCallbacks, ComponentCallbacks2 {
+
+    private static ImageHandoff sInstance;
+
+    private final ArrayList<Retained> mRetained = new ArrayList<>();
+    private long mNextToken = System.nanoTime();
+
+    ImageHandoff() {
+    }
+
+    /**
+     * Get the handoff shared by every view in the process, listening to the
+     * activities of the application once created
+     *
+     * @param context a context of the application
+     * @return the shared handoff
+     */
+    static synchronized ImageHandoff getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageHandoff();
+            Context application = context.getApplicationContext();
+            if (application instanceof Application) {
+                ((Application) application).registerActivityLifecycleCallbacks(sInstance);
+            }
+            application.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Find the activity a view context belongs to
+     *
+     * @param context the view context
+     * @return the activity or null if the context is not from one
+     */
+    @Nullable
+    static Activity getActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /**
+     * Take a reference to each cached decode and hold them until claimed,
+     * without counting cache hits or creating drawables
+     *
+     * @param owner the activity saving its state or null if unknown
+     * @param cache the cache the decodes are in
+     * @param keys  the keys of the decodes, those no longer cached are skipped
+     * @return the token to claim the decodes with or 0 if none were cached
+     */
+    synchronized long retain(@Nullable Activity owner, @NonNull ImageCache cache, @NonNull ImageCache.Key... keys) {
+        Retained retained = new Retained(cache, owner);
+        for (ImageCache.Key key : keys) {
+            if (key != null && key.source != null && !retained.keys.contains(key) && cache.retain(key)) {
+                retained.keys.add(key);
+            }
+        }
+        if (retained.keys.isEmpty()) {
+            return 0;
+        }
+        retained.token = ++mNextToken;
+        mRetained.add(retained);
+        Timber.d("retained: token=%s, images=%s", retained.token, retained.keys.size());
+        return retained.token;
+    }
+
+    /**
+     * Take over the decodes held for a token, the caller must release them
+     *
+     * @param token the token returned by {@link #retain}
+     * @return the decodes or null if they were released or never held
+     */
+    @Nullable
+    synchronized Retained claim(long token) {
+        for (Iterator<Retained> it = mRetained.iterator(); it.hasNext(); ) {
+            Retained retained = it.next();
+            if (retained.token == token) {
+                it.remove();
+                Timber.d("claimed: token=%s", token);
+                return retained;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release the decodes held for the activity, or every decode if null
+     *
+     * @param owner the activity the decodes were saved by
+     */
+    private synchronized void release(@Nullable Activity owner) {
+        for (Iterator<Retained> it = mRetained.iterator(); it.hasNext(); ) {
+            Retained retained = it.next();
+            if (owner == null || retained.owner == owner) {
+                it.remove();
+                retained.release();
+            }
+        }
+    }
+
+    /**
+     * Get the number of handoffs waiting to be claimed
+     *
+     * @return the handoff count
+     */
+    synchronized int getRetainedCount() {
+        return mRetained.size();
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        release(null);
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        if (!activity.isChangingConfigurations()) {
+            release(activity);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            release(null);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        release(null);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Decodes held for a view, each with a cache reference
+     */
+    static final class Retained {
+        final ImageCache cache;
+        final ArrayList<ImageCache.Key> keys = new ArrayList<>(2);
+        private final Activity owner;
+        private long token;
+
+        Retained(@NonNull ImageCache cache, @Nullable Activity owner) {
+            this.cache = cache;
+            this.owner = owner;
+        }
+
+        /**
+         * Find the largest decode of the source held in the cache given
+         *
+         * @param cache  the cache the decode is looked up in
+         * @param source the image source
+         * @return the key of the decode or null if none is held
+         */
+        @Nullable
+        ImageCache.Key find(ImageCache cache, @Nullable ImageSource source) {
+            if (cache != this.cache || source == null) {
+                return null;
+            }
+            ImageCache.Key found = null;
+            for (ImageCache.Key key : keys) {
+                if (source.equals(key.source) && (found == null || key.width > found.width)) {
+                    found = key;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Release the cache reference held for each decode
+         */
+        void release() {
+            for (ImageCache.Key key : keys) {
+                cache.release(key);
+            }
+            keys.clear();
+        }
+    }
+}
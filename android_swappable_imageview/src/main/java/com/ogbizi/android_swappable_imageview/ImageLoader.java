@@ -0,0 +1,531 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+import timber.log.Timber;
+
+/**
+ * Decodes drawable resources on a worker executor and delivers the ready to
+ * draw results on a delivery executor, the main thread by default. Decoded
+ * drawables are shared through an {@link ImageCache}.
+ */
+public class ImageLoader {
+
+    /**
+     * Step in pixels target sizes are rounded up to, so small size changes
+     * reuse the same decode
+     */
+    public static final int SIZE_BUCKET = 32;
+
+    /**
+     * Quality of the lossy encodings stored in the disk cache
+     */
+    private static final int STORE_QUALITY = 90;
+
+    private final Context mContext;
+    private final Executor mWorker;
+    private final Executor mDelivery;
+    private final ImageCache mCache;
+    private DiskCache mDiskCache;
+
+    /**
+     * Create a loader sharing the process wide cache, which is registered to
+     * trim itself on memory pressure
+     *
+     * @param context the context used to resolve resources
+     */
+    public ImageLoader(Context context) {
+        this(context, AsyncTask.THREAD_POOL_EXECUTOR, new MainThreadExecutor());
+        if (context != null) {
+            mCache.registerComponentCallbacks(context);
+        }
+    }
+
+    /**
+     * @param context  the context used to resolve resources
+     * @param worker   the executor decoding happens on
+     * @param delivery the executor callbacks are run on
+     */
+    public ImageLoader(Context context, @NonNull Executor worker, @NonNull Executor delivery) {
+        this(context, worker, delivery, ImageCache.getInstance());
+    }
+
+    /**
+     * @param context  the context used to resolve resources
+     * @param worker   the executor decoding happens on
+     * @param delivery the executor callbacks are run on
+     * @param cache    the cache decoded drawables are shared through
+     */
+    public ImageLoader(Context context, @NonNull Executor worker, @NonNull Executor delivery,
+                       @NonNull ImageCache cache) {
+        mContext = context;
+        mWorker = worker;
+        mDelivery = delivery;
+        mCache = cache;
+    }
+
+    /**
+     * Get the cache decoded drawables are shared through
+     *
+     * @return the image cache
+     */
+    public ImageCache getCache() {
+        return mCache;
+    }
+
+    /**
+     * Set the disk cache scaled decodes are stored in and read back from, so
+     * later launches skip decoding the full size sources
+     *
+     * @param diskCache the disk cache or null to always decode the sources
+     */
+    public void setDiskCache(@Nullable DiskCache diskCache) {
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * Get the disk cache scaled decodes are stored in
+     *
+     * @return the disk cache or null if none is used
+     */
+    @Nullable
+    public DiskCache getDiskCache() {
+        return mDiskCache;
+    }
+
+    /**
+     * Decode the drawable resources at their original size off the calling
+     * thread
+     *
+     * @param callback the callback to deliver the drawables to
+     * @param resIds   the drawable resource ids to decode
+     * @return the request that can be used to cancel delivery
+     * @see #load(Callback, ImageCache.Key...)
+     */
+    public Request load(@NonNull Callback callback, @DrawableRes int... resIds) {
+        ImageCache.Key[] keys = new ImageCache.Key[resIds.length];
+        for (int i = 0; i < resIds.length; i++) {
+            keys[i] = new ImageCache.Key(resIds[i], 0, 0);
+        }
+        return load(callback, keys);
+    }
+
+    /**
+     * Get the drawables from the cache or decode them off the calling thread.
+     * Each drawable delivered holds a reference on its cache entry that the
+     * callback owns and must {@link ImageCache#release}.
+     *
+     * @param callback the callback to deliver the drawables to
+     * @param keys     the keys of the drawables to decode
+     * @return the request that can be used to cancel delivery
+     */
+    public Request load(@NonNull Callback callback, @NonNull ImageCache.Key... keys) {
+        Request request = new Request(callback, keys);
+        mWorker.execute(request);
+        return request;
+    }
+
+    /**
+     * Decode drawables into the cache ahead of time without holding a
+     * reference to them, so they can be bound later without decoding
+     *
+     * @param keys the keys of the drawables to decode
+     */
+    public void prefetch(@NonNull final ImageCache.Key... keys) {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (ImageCache.Key key : keys) {
+                    if (key.source == null || mCache.contains(key)) {
+                        continue;
+                    }
+                    try {
+                        Drawable drawable = decodeStored(key);
+                        if (drawable == null) {
+                            drawable = decode(key);
+                            if (drawable != null && mCache.putPrefetched(key, drawable)) {
+                                store(key, drawable);
+                            }
+                        } else {
+                            mCache.putPrefetched(key, drawable);
+                        }
+                    } catch (Exception e) {
+                        Timber.e(e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Get a cached drawable or decode and cache it, taking a reference
+     *
+     * @param key the key of the drawable
+     * @return the drawable or null if it could not be decoded
+     * @throws IOException if the source could not be read
+     */
+    @Nullable
+    private Drawable acquire(ImageCache.Key key) throws IOException {
+        Drawable drawable = mCache.acquire(key);
+        if (drawable == null) {
+            drawable = decodeStored(key);
+            if (drawable != null) {
+                return mCache.put(key, drawable);
+            }
+            drawable = decode(key);
+            if (drawable != null) {
+                drawable = mCache.put(key, drawable);
+                store(key, drawable);
+            }
+        }
+        return drawable;
+    }
+
+    /**
+     * Get the disk cache key of a scaled decode, which includes the display
+     * density the decode was made for
+     *
+     * @param key the key of the drawable
+     * @return the disk key or null if the decode can not be stored
+     */
+    @Nullable
+    private String getDiskKey(ImageCache.Key key) {
+        if (mDiskCache == null || key.source == null || key.width <= 0 || key.height <= 0) {
+            return null;
+        }
+        String sourceKey = key.source.getDiskKey();
+        if (sourceKey == null) {
+            return null;
+        }
+        int density = mContext.getResources().getDisplayMetrics().densityDpi;
+        return sourceKey + "@" + key.width + "x" + key.height + "@" + density;
+    }
+
+    /**
+     * Read a scaled decode back from the disk cache
+     *
+     * @param key the key of the drawable
+     * @return the drawable or null if it is not stored
+     */
+    @Nullable
+    private Drawable decodeStored(ImageCache.Key key) {
+        String diskKey = getDiskKey(key);
+        InputStream in = diskKey == null ? null : mDiskCache.get(diskKey);
+        if (in == null) {
+            return null;
+        }
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = BitmapPool.isSupported();
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                mDiskCache.remove(diskKey);
+                return null;
+            }
+            bitmap.setDensity(mContext.getResources().getDisplayMetrics().densityDpi);
+            bitmap.prepareToDraw();
+            return new BitmapDrawable(mContext.getResources(), bitmap);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                Timber.w(e);
+            }
+        }
+    }
+
+    /**
+     * Encode a scaled decode into the disk cache on the worker executor,
+     * holding a reference so the bitmap is not pooled while it is read
+     *
+     * @param key      the key of the cached drawable
+     * @param drawable the decoded drawable
+     */
+    private void store(final ImageCache.Key key, Drawable drawable) {
+        final String diskKey = getDiskKey(key);
+        if (diskKey == null || !(drawable instanceof BitmapDrawable) || mDiskCache.contains(diskKey)) {
+            return;
+        }
+        final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+        final boolean isRetained = mCache.retain(key);
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(diskKey, bitmap);
+                } catch (IOException e) {
+                    Timber.w(e, "could not store %s", key);
+                } finally {
+                    if (isRetained) {
+                        mCache.release(key);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Encode a bitmap into the disk cache, lossless if it has transparency
+     *
+     * @param diskKey the disk cache key
+     * @param bitmap  the bitmap to encode
+     * @throws IOException if the entry could not be written
+     */
+    private void write(String diskKey, Bitmap bitmap) throws IOException {
+        DiskCache.Editor editor = mDiskCache.edit(diskKey);
+        if (editor == null) {
+            return;
+        }
+        Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+        if (bitmap.compress(format, STORE_QUALITY, editor.getOutputStream())) {
+            editor.commit();
+        } else {
+            editor.abort();
+        }
+    }
+
+    /**
+     * Decode a single drawable, called on the worker executor. Bitmap sources
+     * are sampled and scaled down to fit the target size of the key, other
+     * drawables are inflated as is.
+     *
+     * @param key the key of the drawable
+     * @return the drawable ready to be drawn or null if it could not be decoded
+     * @throws IOException if the source could not be read
+     */
+    @Nullable
+    protected Drawable decode(@NonNull ImageCache.Key key) throws IOException {
+        if (key.source == null) {
+            return null;
+        }
+        if (key.width > 0 && key.height > 0) {
+            Bitmap bitmap = decodeBitmap(key.source, key.width, key.height);
+            if (bitmap != null) {
+                bitmap.prepareToDraw();
+                return new BitmapDrawable(mContext.getResources(), bitmap);
+            }
+        }
+        Drawable drawable = key.source.decodeDrawable(mContext);
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null) {
+                bitmap.prepareToDraw();
+            }
+        }
+        return drawable;
+    }
+
+    /**
+     * Decode a bitmap source holding only the pixels needed to fit the size,
+     * sampling and scaling it in a single decode. The decode reuses a bitmap
+     * from the cache's pool when one fits.
+     *
+     * @param source the image source
+     * @param width  the width to fit
+     * @param height the height to fit
+     * @return the bitmap or null if the source is not a bitmap
+     * @throws IOException if the source could not be read
+     */
+    @Nullable
+    private Bitmap decodeBitmap(@NonNull ImageSource source, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        source.decodeBitmap(mContext, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, width, height);
+        int sampledWidth = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int sampledHeight = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        float scale = getFitScale(sampledWidth, sampledHeight, width, height);
+        if (scale < 1) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = Math.max(1, Math.round(sampledWidth * scale));
+        }
+        BitmapPool pool = mCache.getBitmapPool();
+        if (pool != null && BitmapPool.isSupported()) {
+            options.inMutable = true;
+            int fitWidth = (int) Math.ceil(sampledWidth * scale) + 1;
+            int fitHeight = (int) Math.ceil(sampledHeight * scale) + 1;
+            options.inBitmap = pool.get(fitWidth * fitHeight * 4);
+        }
+        Bitmap bitmap;
+        try {
+            bitmap = source.decodeBitmap(mContext, options);
+        } catch (IllegalArgumentException e) {
+            Timber.w(e, "could not reuse bitmap: %s", source);
+            options.inBitmap = null;
+            bitmap = source.decodeBitmap(mContext, options);
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        bitmap.setDensity(mContext.getResources().getDisplayMetrics().densityDpi);
+        return bitmap;
+    }
+
+    /**
+     * Round a size up to the nearest {@link #SIZE_BUCKET}
+     *
+     * @param size the size in pixels
+     * @return the bucketed size or 0 if the size is unknown
+     */
+    public static int getSizeBucket(int size) {
+        return size <= 0 ? 0 : (size + SIZE_BUCKET - 1) / SIZE_BUCKET * SIZE_BUCKET;
+    }
+
+    /**
+     * Get the scale that fits the source inside the target, as the image views
+     * do by default, without ever scaling up
+     *
+     * @param srcWidth  the source width
+     * @param srcHeight the source height
+     * @param dstWidth  the target width
+     * @param dstHeight the target height
+     * @return the scale between 0..1
+     */
+    static float getFitScale(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        float scale = Math.min((float) dstWidth / srcWidth, (float) dstHeight / srcHeight);
+        return Math.min(1, scale);
+    }
+
+    /**
+     * Get the largest power of two sample size that still leaves enough pixels
+     * to fit the target without scaling up
+     *
+     * @param srcWidth  the source width
+     * @param srcHeight the source height
+     * @param dstWidth  the target width
+     * @param dstHeight the target height
+     * @return the sample size to decode with
+     */
+    static int getSampleSize(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        float scale = getFitScale(srcWidth, srcHeight, dstWidth, dstHeight);
+        float fitWidth = srcWidth * scale;
+        float fitHeight = srcHeight * scale;
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= fitWidth && srcHeight / (sampleSize * 2) >= fitHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Pending decode of one or more drawables
+     */
+    public class Request implements Runnable {
+        private final Callback mCallback;
+        private final ImageCache.Key[] mKeys;
+        private volatile boolean isCancelled = false;
+        private boolean isDelivered = false;
+
+        Request(Callback callback, ImageCache.Key[] keys) {
+            mCallback = callback;
+            mKeys = keys;
+        }
+
+        /**
+         * Stop the results from being delivered, decoding already started
+         * still runs to completion
+         */
+        public void cancel() {
+            isCancelled = true;
+        }
+
+        /**
+         * @return true if the request was cancelled before delivery
+         */
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        /**
+         * @return true if the results were delivered, which happens before
+         * {@link #load} returns when the executors run in place
+         */
+        public boolean isDelivered() {
+            return isDelivered;
+        }
+
+        @Override
+        public void run() {
+            final Drawable[] drawables = new Drawable[mKeys.length];
+            for (int i = 0; i < mKeys.length && !isCancelled; i++) {
+                try {
+                    drawables[i] = acquire(mKeys[i]);
+                } catch (Exception e) {
+                    Timber.e(e);
+                }
+            }
+            if (isCancelled) {
+                releaseAll(drawables);
+                return;
+            }
+            mDelivery.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled) {
+                        releaseAll(drawables);
+                    } else {
+                        isDelivered = true;
+                        mCallback.onLoaded(drawables);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Drop the references taken for drawables that will not be delivered
+         *
+         * @param drawables the drawables acquired
+         */
+        private void releaseAll(Drawable[] drawables) {
+            for (int i = 0; i < drawables.length; i++) {
+                if (drawables[i] != null) {
+                    mCache.release(mKeys[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives decoded drawables on the delivery executor
+     */
+    public interface Callback {
+        /**
+         * @param drawables the decoded drawables in the order requested, an
+         *                  entry is null if the resource could not be decoded
+         *                  otherwise it holds a reference on its cache entry
+         */
+        void onLoaded(Drawable... drawables);
+    }
+
+    /**
+     * Posts runnables to the main thread
+     */
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mHandler.post(command);
+        }
+    }
+}
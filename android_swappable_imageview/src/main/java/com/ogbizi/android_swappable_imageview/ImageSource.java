@@ -0,0 +1,484 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * Where the pixels of an image come from, a drawable resource, an asset, a
+ * file, an open file descriptor or encoded bytes in memory, for example a
+ * memory mapped file. Sources are compared by identity so equal
+ * sources share a decode in the {@link ImageCache}. Decoding streams straight
+ * from the source without copying it into memory first.
+ */
+public abstract class ImageSource {
+
+    /**
+     * @param resId the drawable resource id
+     * @return the source of the drawable resource
+     */
+    public static ImageSource fromResource(@DrawableRes int resId) {
+        return new Resource(resId);
+    }
+
+    /**
+     * @param path the path of the image in the assets
+     * @return the source of the asset
+     */
+    public static ImageSource fromAsset(@NonNull String path) {
+        return new Asset(path);
+    }
+
+    /**
+     * Get the source of an image file, changes to the file after this call
+     * give a different source so stale decodes are not reused
+     *
+     * @param file the image file
+     * @return the source of the file
+     */
+    public static ImageSource fromFile(@NonNull File file) {
+        return new FileSource(file);
+    }
+
+    /**
+     * Get the source of an image read from an open file descriptor, which
+     * must stay open while the source is in use and is never closed by it
+     *
+     * @param descriptor the file descriptor positioned at the image, read
+     *                   from that position by every decode
+     * @return the source of the descriptor
+     */
+    public static ImageSource fromFileDescriptor(@NonNull ParcelFileDescriptor descriptor) {
+        return new Descriptor(descriptor);
+    }
+
+    /**
+     * Get the source of an image encoded in a buffer, such as a memory mapped
+     * file, read from its position to its limit when this is called. The
+     * bytes are read in place and must not change while the source is in use.
+     *
+     * @param buffer the encoded image
+     * @param key    identifies the bytes so equal keys share a decode, it must
+     *               change whenever the bytes do
+     * @return the source of the bytes
+     */
+    public static ImageSource fromBytes(@NonNull ByteBuffer buffer, @NonNull String key) {
+        return new Bytes(buffer, key);
+    }
+
+    /**
+     * Get the drawable resource id of the source
+     *
+     * @return the resource id or 0 if it is not a resource
+     */
+    @DrawableRes
+    public int getResourceId() {
+        return 0;
+    }
+
+    /**
+     * Get a key identifying the source across launches, for storing its
+     * decodes in a {@link DiskCache}
+     *
+     * @return the key or null if the source can not be identified later
+     */
+    @Nullable
+    public String getDiskKey() {
+        return null;
+    }
+
+    /**
+     * Get a string the source can be created again from once the view state
+     * is restored, see {@link #fromSavedString}
+     *
+     * @return the string or null if the source can not be saved
+     */
+    @Nullable
+    String getSavedString() {
+        return null;
+    }
+
+    /**
+     * Create a source from the string it was saved as
+     *
+     * @param saved the string from {@link #getSavedString}
+     * @return the source or null if the string is not a saved source
+     */
+    @Nullable
+    static ImageSource fromSavedString(@Nullable String saved) {
+        if (saved == null) {
+            return null;
+        } else if (saved.startsWith(Asset.PREFIX)) {
+            return fromAsset(saved.substring(Asset.PREFIX.length()));
+        } else if (saved.startsWith(FileSource.PREFIX)) {
+            return fromFile(new File(saved.substring(FileSource.PREFIX.length())));
+        }
+        return null;
+    }
+
+    /**
+     * Decode the source as a bitmap, called on a worker thread once for the
+     * bounds then again for the pixels
+     *
+     * @param context the context to resolve the source with
+     * @param options the decode options
+     * @return the bitmap, or null when only the bounds were decoded or the
+     * source is not a bitmap
+     * @throws IOException if the source could not be read
+     */
+    @Nullable
+    public abstract Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options)
+            throws IOException;
+
+    /**
+     * Decode the source at its original size
+     *
+     * @param context the context to resolve the source with
+     * @return the drawable or null if it could not be decoded
+     * @throws IOException if the source could not be read
+     */
+    @Nullable
+    public Drawable decodeDrawable(@NonNull Context context) throws IOException {
+        Bitmap bitmap = decodeBitmap(context, new BitmapFactory.Options());
+        return bitmap == null ? null : new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    /**
+     * A drawable resource, which may also be a vector or other xml drawable
+     */
+    private static final class Resource extends ImageSource {
+        private final int mResId;
+
+        Resource(int resId) {
+            mResId = resId;
+        }
+
+        @Override
+        public int getResourceId() {
+            return mResId;
+        }
+
+        @Override
+        public String getDiskKey() {
+            return "res:" + mResId;
+        }
+
+        @Override
+        public Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options) {
+            return BitmapFactory.decodeResource(context.getResources(), mResId, options);
+        }
+
+        @Override
+        public Drawable decodeDrawable(@NonNull Context context) {
+            return ContextCompat.getDrawable(context, mResId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Resource && mResId == ((Resource) o).mResId;
+        }
+
+        @Override
+        public int hashCode() {
+            return mResId;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(mResId);
+        }
+    }
+
+    /**
+     * An image in the app's assets
+     */
+    private static final class Asset extends ImageSource {
+        static final String PREFIX = "asset:";
+        private final String mPath;
+
+        Asset(String path) {
+            mPath = path;
+        }
+
+        @Override
+        public String getDiskKey() {
+            return PREFIX + mPath;
+        }
+
+        @Override
+        String getSavedString() {
+            return PREFIX + mPath;
+        }
+
+        @Override
+        public Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options)
+                throws IOException {
+            InputStream in = context.getAssets().open(mPath);
+            try {
+                return BitmapFactory.decodeStream(in, null, options);
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Asset && mPath.equals(((Asset) o).mPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return mPath.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "asset:" + mPath;
+        }
+    }
+
+    /**
+     * An image file, identified by its path, size and modification time
+     */
+    private static final class FileSource extends ImageSource {
+        static final String PREFIX = "file:";
+        private final File mFile;
+        private final long mLength;
+        private final long mLastModified;
+
+        FileSource(File file) {
+            mFile = file.getAbsoluteFile();
+            mLength = file.length();
+            mLastModified = file.lastModified();
+        }
+
+        @Override
+        public String getDiskKey() {
+            return PREFIX + mFile + ":" + mLength + ":" + mLastModified;
+        }
+
+        @Override
+        String getSavedString() {
+            return PREFIX + mFile;
+        }
+
+        @Override
+        public Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options)
+                throws IOException {
+            FileInputStream in = new FileInputStream(mFile);
+            try {
+                return BitmapFactory.decodeFileDescriptor(in.getFD(), null, options);
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileSource)) return false;
+            FileSource source = (FileSource) o;
+            return mLength == source.mLength && mLastModified == source.mLastModified
+                    && mFile.equals(source.mFile);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mFile.hashCode();
+            result = 31 * result + (int) (mLength ^ (mLength >>> 32));
+            result = 31 * result + (int) (mLastModified ^ (mLastModified >>> 32));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "file:" + mFile;
+        }
+    }
+
+    /**
+     * An image encoded in a buffer owned by the caller, identified by the key
+     * given for it. Heap buffers are decoded from their array and others,
+     * direct or mapped, are streamed from a view of the buffer per decode so
+     * concurrent decodes do not share a position.
+     */
+    private static final class Bytes extends ImageSource {
+        static final String PREFIX = "bytes:";
+        private final ByteBuffer mBuffer;
+        private final String mKey;
+
+        Bytes(ByteBuffer buffer, String key) {
+            mBuffer = buffer.slice();
+            mKey = key;
+        }
+
+        @Override
+        public String getDiskKey() {
+            return PREFIX + mKey;
+        }
+
+        @Override
+        public Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options) {
+            if (mBuffer.hasArray()) {
+                return BitmapFactory.decodeByteArray(mBuffer.array(), mBuffer.arrayOffset(),
+                                                     mBuffer.remaining(), options);
+            }
+            return BitmapFactory.decodeStream(new BufferInputStream(mBuffer.duplicate()), null, options);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bytes && mKey.equals(((Bytes) o).mKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return mKey.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return PREFIX + mKey;
+        }
+    }
+
+    /**
+     * Reads a buffer from its position to its limit, moving its position
+     */
+    static final class BufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+        private int mMark = -1;
+
+        BufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, mBuffer.remaining()));
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+            mMark = mBuffer.position();
+        }
+
+        @Override
+        public void reset() throws IOException {
+            if (mMark < 0) {
+                throw new IOException("not marked");
+            }
+            mBuffer.position(mMark);
+        }
+    }
+
+    /**
+     * An image read from a file descriptor owned by the caller. The offset of
+     * the descriptor is shared by every read, so each decode seeks back to
+     * where the image starts and decodes of the same descriptor are serialized.
+     */
+    private static final class Descriptor extends ImageSource {
+        private final ParcelFileDescriptor mDescriptor;
+        private final long mStart;
+
+        Descriptor(ParcelFileDescriptor descriptor) {
+            mDescriptor = descriptor;
+            mStart = getPosition(descriptor);
+        }
+
+        @Override
+        public Bitmap decodeBitmap(@NonNull Context context, @NonNull BitmapFactory.Options options)
+                throws IOException {
+            synchronized (mDescriptor) {
+                if (mStart >= 0) {
+                    getChannel(mDescriptor).position(mStart);
+                }
+                return BitmapFactory.decodeFileDescriptor(mDescriptor.getFileDescriptor(), null, options);
+            }
+        }
+
+        /**
+         * Get the offset of the descriptor
+         *
+         * @param descriptor the file descriptor
+         * @return the offset or -1 if the descriptor cannot seek, a pipe or socket
+         */
+        private static long getPosition(ParcelFileDescriptor descriptor) {
+            try {
+                return getChannel(descriptor).position();
+            } catch (IOException e) {
+                Timber.w(e, "unseekable descriptor: %s", descriptor);
+                return -1;
+            }
+        }
+
+        /**
+         * Get a channel over the descriptor, it is not closed as that would
+         * close the descriptor of the caller
+         */
+        private static FileChannel getChannel(ParcelFileDescriptor descriptor) {
+            return new FileInputStream(descriptor.getFileDescriptor()).getChannel();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Descriptor && mDescriptor == ((Descriptor) o).mDescriptor;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mDescriptor);
+        }
+
+        @Override
+        public String toString() {
+            return "fd:" + mDescriptor;
+        }
+    }
+}
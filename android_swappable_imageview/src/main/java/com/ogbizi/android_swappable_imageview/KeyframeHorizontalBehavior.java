@@ -0,0 +1,37 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.animation.TimeInterpolator;
+
+import com.ogbizi.android_swappable_imageview.SwappableImageView.KeyframeBehavior;
+
+/**
+ * Slides images horizontally like {@link HorizontalSwappableImageBehavior},
+ * described as keyframes the view compiles once per size so frames are
+ * played from a table and {@link #onUpdate} is not called
+ */
+public class KeyframeHorizontalBehavior extends HorizontalSwappableImageBehavior implements KeyframeBehavior {
+
+    public KeyframeHorizontalBehavior() {
+    }
+
+    /**
+     * @param layerType the layer type to promote the image views to while
+     *                  sliding, see {@link #setSwapLayerType}
+     */
+    public KeyframeHorizontalBehavior(int layerType) {
+        super(layerType);
+    }
+
+    @Override
+    public void onDescribeSwap(boolean isReverse, int width, int height,
+                               SwapTransform primaryStart, SwapTransform primaryEnd,
+                               SwapTransform secondaryStart, SwapTransform secondaryEnd) {
+        primaryEnd.setTranslation(width * (isReverse ? 1 : -1), 0);
+        secondaryStart.setTranslation(width * (isReverse ? -1 : 1), 0);
+    }
+
+    @Override
+    public TimeInterpolator getKeyframeInterpolator() {
+        return null;
+    }
+}
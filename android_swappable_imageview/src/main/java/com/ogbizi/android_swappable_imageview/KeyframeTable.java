@@ -0,0 +1,92 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.animation.TimeInterpolator;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * Transforms of both image views sampled across a swap into a flat table,
+ * with the interpolator applied once when compiled. Applying a frame is a
+ * lookup of the two nearest samples, a blend between them and a write of
+ * each property, without allocating.
+ */
+class KeyframeTable {
+
+    /**
+     * Number of intervals the swap is sampled in
+     */
+    static final int SAMPLES = 64;
+
+    private static final int STRIDE = SwapTransform.PROPERTY_COUNT * 2;
+
+    private final float[] mValues = new float[(SAMPLES + 1) * STRIDE];
+    private final float[] mFrame = new float[STRIDE];
+
+    /**
+     * @param primaryStart   the transform of the current image view at the start
+     * @param primaryEnd     the transform of the current image view at the end
+     * @param secondaryStart the transform of the swapped in image view at the start
+     * @param secondaryEnd   the transform of the swapped in image view at the end
+     * @param interpolator   the interpolator between the transforms or null for linear
+     */
+    KeyframeTable(SwapTransform primaryStart, SwapTransform primaryEnd, SwapTransform secondaryStart,
+                  SwapTransform secondaryEnd, @Nullable TimeInterpolator interpolator) {
+        for (int sample = 0; sample <= SAMPLES; sample++) {
+            float fraction = sample / (float) SAMPLES;
+            if (interpolator != null) {
+                fraction = interpolator.getInterpolation(fraction);
+            }
+            int offset = sample * STRIDE;
+            for (int property = 0; property < SwapTransform.PROPERTY_COUNT; property++) {
+                mValues[offset + property] = lerp(primaryStart.get(property), primaryEnd.get(property), fraction);
+                mValues[offset + SwapTransform.PROPERTY_COUNT + property] =
+                        lerp(secondaryStart.get(property), secondaryEnd.get(property), fraction);
+            }
+        }
+    }
+
+    private static float lerp(float start, float end, float fraction) {
+        return start + (end - start) * fraction;
+    }
+
+    /**
+     * Get the property values of both image views at a point of the swap, the
+     * primary image view's followed by the secondary's. The array is reused.
+     *
+     * @param fraction the fraction of the swap completed between 0..1
+     * @return the property values
+     */
+    float[] getFrame(float fraction) {
+        float position = Math.min(Math.max(fraction, 0), 1) * SAMPLES;
+        int sample = Math.min((int) position, SAMPLES - 1);
+        float blend = position - sample;
+        int offset = sample * STRIDE;
+        for (int i = 0; i < STRIDE; i++) {
+            mFrame[i] = lerp(mValues[offset + i], mValues[offset + STRIDE + i], blend);
+        }
+        return mFrame;
+    }
+
+    /**
+     * Transform both image views to a point of the swap
+     *
+     * @param fraction  the fraction of the swap completed between 0..1
+     * @param primary   the current image view
+     * @param secondary the image view swapping in
+     */
+    void apply(float fraction, @NonNull View primary, @NonNull View secondary) {
+        float[] frame = getFrame(fraction);
+        apply(frame, 0, primary);
+        apply(frame, SwapTransform.PROPERTY_COUNT, secondary);
+    }
+
+    private static void apply(float[] frame, int offset, View view) {
+        view.setTranslationX(frame[offset + SwapTransform.TRANSLATION_X]);
+        view.setTranslationY(frame[offset + SwapTransform.TRANSLATION_Y]);
+        view.setScaleX(frame[offset + SwapTransform.SCALE_X]);
+        view.setScaleY(frame[offset + SwapTransform.SCALE_Y]);
+        view.setAlpha(frame[offset + SwapTransform.ALPHA]);
+        view.setRotation(frame[offset + SwapTransform.ROTATION]);
+    }
+}
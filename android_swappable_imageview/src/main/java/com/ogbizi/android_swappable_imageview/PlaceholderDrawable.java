@@ -0,0 +1,155 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Shows a thumbnail or colour fill while the full image is decoded, then the
+ * full image in its place. The placeholder has no intrinsic size and fits
+ * the drawable it shows to its bounds itself, so upgrading only redraws the
+ * image view instead of setting a drawable of another size and laying out.
+ */
+class PlaceholderDrawable extends Drawable implements Drawable.Callback {
+
+    private final long mShownNanos;
+    private final boolean isThumbnail;
+    private Drawable mDrawable;
+    private boolean isUpgraded = false;
+    private int mAlpha = 255;
+    private ColorFilter mColorFilter;
+
+    /**
+     * @param drawable    the thumbnail or colour fill to show until upgraded
+     * @param isThumbnail true if the drawable is a thumbnail of the image
+     */
+    PlaceholderDrawable(@NonNull Drawable drawable, boolean isThumbnail) {
+        this.isThumbnail = isThumbnail;
+        mShownNanos = System.nanoTime();
+        setDrawable(drawable);
+    }
+
+    /**
+     * Show the full image in place of the placeholder
+     *
+     * @param drawable the decoded full image
+     */
+    void upgrade(@NonNull Drawable drawable) {
+        isUpgraded = true;
+        setDrawable(drawable);
+        invalidateSelf();
+    }
+
+    /**
+     * @return true once the full image is shown
+     */
+    boolean isUpgraded() {
+        return isUpgraded;
+    }
+
+    /**
+     * @return true if a thumbnail was shown, false for a colour fill
+     */
+    boolean isThumbnail() {
+        return isThumbnail;
+    }
+
+    /**
+     * @return the time the placeholder was created in the {@link System#nanoTime()} base
+     */
+    long getShownNanos() {
+        return mShownNanos;
+    }
+
+    /**
+     * Get the drawable shown, the placeholder or the full image once upgraded
+     *
+     * @return the drawable shown
+     */
+    Drawable getDrawable() {
+        return mDrawable;
+    }
+
+    private void setDrawable(Drawable drawable) {
+        if (mDrawable != null) {
+            mDrawable.setCallback(null);
+        }
+        mDrawable = drawable;
+        drawable.setCallback(this);
+        drawable.setAlpha(mAlpha);
+        drawable.setColorFilter(mColorFilter);
+        fitBounds(getBounds());
+    }
+
+    /**
+     * Centre the drawable inside the bounds keeping its aspect ratio, or fill
+     * the bounds if it has no intrinsic size
+     *
+     * @param bounds the bounds of the placeholder
+     */
+    private void fitBounds(Rect bounds) {
+        int width = mDrawable.getIntrinsicWidth();
+        int height = mDrawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            mDrawable.setBounds(bounds);
+            return;
+        }
+        float scale = Math.min(bounds.width() / (float) width, bounds.height() / (float) height);
+        int scaledWidth = Math.round(width * scale);
+        int scaledHeight = Math.round(height * scale);
+        int left = bounds.left + (bounds.width() - scaledWidth) / 2;
+        int top = bounds.top + (bounds.height() - scaledHeight) / 2;
+        mDrawable.setBounds(left, top, left + scaledWidth, top + scaledHeight);
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        fitBounds(bounds);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        mDrawable.draw(canvas);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        mDrawable.setAlpha(alpha);
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mColorFilter = colorFilter;
+        mDrawable.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+}
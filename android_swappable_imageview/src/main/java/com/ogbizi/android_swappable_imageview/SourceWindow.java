@@ -0,0 +1,127 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The image sources of an adapter materialized around a position, in a ring
+ * indexed by position so moving the window only drops the sources leaving
+ * it. Sources outside the window are looked up without being kept, so
+ * memory depends on the window size and not the adapter count.
+ */
+class SourceWindow {
+
+    private final ImageSource[] mSources;
+    private final boolean[] isLoaded;
+    private final int mReach;
+    private int mStart = 0;
+    private int loadCount = 0;
+
+    /**
+     * @param reach the number of positions kept on each side of the center
+     */
+    SourceWindow(int reach) {
+        mReach = reach;
+        mSources = new ImageSource[2 * reach + 1];
+        isLoaded = new boolean[mSources.length];
+    }
+
+    /**
+     * Get the source at the position, moving the window to the center given
+     * first
+     *
+     * @param adapter  the adapter supplying sources
+     * @param position the position of the image
+     * @param center   the position the window is centered on
+     * @return the image source
+     */
+    @Nullable
+    ImageSource get(@NonNull SwappableImageAdapter adapter, int position, int center) {
+        moveTo(center - mReach);
+        if (position < mStart || position >= mStart + mSources.length) {
+            loadCount++;
+            return adapter.getImageSource(position);
+        }
+        int slot = getSlot(position);
+        if (!isLoaded[slot]) {
+            loadCount++;
+            mSources[slot] = adapter.getImageSource(position);
+            isLoaded[slot] = true;
+        }
+        return mSources[slot];
+    }
+
+    private int getSlot(int position) {
+        return (position % mSources.length + mSources.length) % mSources.length;
+    }
+
+    /**
+     * Move the start of the window, dropping the sources that leave it
+     *
+     * @param start the first position of the window
+     */
+    private void moveTo(int start) {
+        if (start == mStart) {
+            return;
+        }
+        if (Math.abs(start - mStart) >= mSources.length) {
+            clear();
+        } else {
+            int from = start > mStart ? mStart : start + mSources.length;
+            int to = start > mStart ? start : mStart + mSources.length;
+            for (int position = from; position < to; position++) {
+                drop(position);
+            }
+        }
+        mStart = start;
+    }
+
+    private void drop(int position) {
+        int slot = getSlot(position);
+        mSources[slot] = null;
+        isLoaded[slot] = false;
+    }
+
+    /**
+     * Drop every source
+     */
+    void clear() {
+        for (int i = 0; i < mSources.length; i++) {
+            mSources[i] = null;
+            isLoaded[i] = false;
+        }
+    }
+
+    /**
+     * Drop the sources of a range that changed
+     *
+     * @param start the first position changed
+     * @param count the number of positions changed
+     */
+    void onChanged(int start, int count) {
+        int from = Math.max(start, mStart);
+        int to = Math.min(start + count, mStart + mSources.length);
+        for (int position = from; position < to; position++) {
+            drop(position);
+        }
+    }
+
+    /**
+     * Drop the sources moved by a range inserted or removed, those before it
+     * stay where they are
+     *
+     * @param start the first position inserted or removed
+     */
+    void onMoved(int start) {
+        onChanged(start, mStart + mSources.length - start);
+    }
+
+    /**
+     * Get the number of sources looked up from the adapter
+     *
+     * @return the load count
+     */
+    int getLoadCount() {
+        return loadCount;
+    }
+}
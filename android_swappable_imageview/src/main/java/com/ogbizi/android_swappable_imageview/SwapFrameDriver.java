@@ -0,0 +1,221 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+/**
+ * Drives the swap animations of many views from a single frame callback.
+ * Every active client is ticked in one pass over a compact array and the
+ * callback is only posted while at least one client is active. All methods
+ * must be called from the main thread.
+ */
+public class SwapFrameDriver {
+
+    private static SwapFrameDriver sInstance;
+
+    private final FrameScheduler mScheduler;
+    private Client[] mClients = new Client[8];
+    private int mCount = 0;
+    private int mActiveCount = 0;
+    private boolean isScheduled = false;
+    private int frameCount = 0;
+
+    /**
+     * @param scheduler the scheduler posting frame callbacks
+     */
+    public SwapFrameDriver(@NonNull FrameScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Get the driver shared by every view in the process, ticked by the
+     * choreographer where available
+     *
+     * @return the shared frame driver
+     */
+    public static synchronized SwapFrameDriver getInstance() {
+        if (sInstance == null) {
+            FrameScheduler scheduler;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                scheduler = new ChoreographerScheduler();
+            } else {
+                scheduler = new HandlerScheduler();
+            }
+            sInstance = new SwapFrameDriver(scheduler);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Start ticking a client from the next frame, adding it again while it is
+     * active has no effect
+     *
+     * @param client the client to tick
+     */
+    void add(@NonNull Client client) {
+        if (indexOf(client) >= 0) {
+            return;
+        }
+        if (mCount == mClients.length) {
+            Client[] clients = new Client[mCount * 2];
+            System.arraycopy(mClients, 0, clients, 0, mCount);
+            mClients = clients;
+        }
+        mClients[mCount++] = client;
+        mActiveCount++;
+        schedule();
+    }
+
+    /**
+     * Stop ticking a client before it finishes, its slot is freed once the
+     * current pass is done
+     *
+     * @param client the client to stop ticking
+     */
+    void remove(@NonNull Client client) {
+        int index = indexOf(client);
+        if (index >= 0) {
+            mClients[index] = null;
+            mActiveCount--;
+        }
+    }
+
+    /**
+     * Tick every active client once. Clients added during the pass are first
+     * ticked on the next frame.
+     *
+     * @param frameTimeNanos the frame time in the {@link System#nanoTime()} base
+     */
+    public void doFrame(long frameTimeNanos) {
+        isScheduled = false;
+        frameCount++;
+        int count = mCount;
+        for (int i = 0; i < count; i++) {
+            Client client = mClients[i];
+            if (client != null && !client.onFrame(frameTimeNanos) && mClients[i] == client) {
+                mClients[i] = null;
+                mActiveCount--;
+            }
+        }
+        compact();
+        if (mActiveCount > 0) {
+            schedule();
+        }
+    }
+
+    /**
+     * @return the number of clients being ticked
+     */
+    public int getActiveCount() {
+        return mActiveCount;
+    }
+
+    /**
+     * @return the number of frame callbacks run
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    private int indexOf(Client client) {
+        for (int i = 0; i < mCount; i++) {
+            if (mClients[i] == client) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the active clients to the front of the array keeping their order
+     */
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < mCount; i++) {
+            Client client = mClients[i];
+            if (client != null) {
+                mClients[count++] = client;
+            }
+        }
+        for (int i = count; i < mCount; i++) {
+            mClients[i] = null;
+        }
+        mCount = count;
+    }
+
+    private void schedule() {
+        if (!isScheduled) {
+            isScheduled = true;
+            mScheduler.postFrame(this);
+        }
+    }
+
+    /**
+     * An animation ticked by the driver
+     */
+    interface Client {
+        /**
+         * Called once per frame while the client is active
+         *
+         * @param frameTimeNanos the frame time in the {@link System#nanoTime()} base
+         * @return true to be ticked again on the next frame
+         */
+        boolean onFrame(long frameTimeNanos);
+    }
+
+    /**
+     * Posts a single frame callback to the driver
+     */
+    public interface FrameScheduler {
+        /**
+         * Call {@link SwapFrameDriver#doFrame(long)} once on the next frame
+         *
+         * @param driver the driver to call
+         */
+        void postFrame(SwapFrameDriver driver);
+    }
+
+    /**
+     * Schedules frames with the choreographer of the main thread
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerScheduler implements FrameScheduler, Choreographer.FrameCallback {
+        private SwapFrameDriver mDriver;
+
+        @Override
+        public void postFrame(SwapFrameDriver driver) {
+            mDriver = driver;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mDriver.doFrame(frameTimeNanos);
+        }
+    }
+
+    /**
+     * Schedules frames on a main thread handler at the default frame rate for
+     * platforms without a choreographer
+     */
+    private static class HandlerScheduler implements FrameScheduler, Runnable {
+        private static final long FRAME_DELAY_MS = 16;
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+        private SwapFrameDriver mDriver;
+
+        @Override
+        public void postFrame(SwapFrameDriver driver) {
+            mDriver = driver;
+            mHandler.postDelayed(this, FRAME_DELAY_MS);
+        }
+
+        @Override
+        public void run() {
+            mDriver.doFrame(System.nanoTime());
+        }
+    }
+}
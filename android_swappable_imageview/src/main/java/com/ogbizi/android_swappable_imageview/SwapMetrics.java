@@ -0,0 +1,161 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Timings of a single swap, from the show request through decoding and every
+ * animation frame until the swap ends or is cancelled. All times are in
+ * nanoseconds from {@link System#nanoTime()}.
+ */
+public class SwapMetrics {
+
+    private final boolean isReverse;
+    private final int fromIndex;
+    private final int toIndex;
+    private final long requestNanos;
+    private long decodedNanos = -1;
+    private long firstFrameNanos = -1;
+    private long lastFrameNanos = -1;
+    private long endNanos = -1;
+    private long longestFrameGapNanos = 0;
+    private int frameCount = 0;
+    private int expectedFrameCount = 0;
+    private boolean isCancelled = false;
+
+    /**
+     * @param isReverse    if the swap is to the previous drawable
+     * @param fromIndex    the index swapped from
+     * @param toIndex      the index swapped to
+     * @param requestNanos the time the swap was requested
+     */
+    SwapMetrics(boolean isReverse, int fromIndex, int toIndex, long requestNanos) {
+        this.isReverse = isReverse;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.requestNanos = requestNanos;
+    }
+
+    /**
+     * Record the drawables being decoded and bound
+     *
+     * @param now the current time
+     */
+    void onDecoded(long now) {
+        decodedNanos = now;
+    }
+
+    /**
+     * Record the animation starting
+     *
+     * @param durationNanos      the animation duration
+     * @param frameIntervalNanos the display frame interval
+     */
+    void onStart(long durationNanos, long frameIntervalNanos) {
+        if (frameIntervalNanos > 0) {
+            expectedFrameCount = (int) ((durationNanos + frameIntervalNanos - 1) / frameIntervalNanos);
+        }
+    }
+
+    /**
+     * Record an animation frame being delivered
+     *
+     * @param now the current time
+     */
+    void onFrame(long now) {
+        if (firstFrameNanos < 0) {
+            firstFrameNanos = now;
+        } else {
+            longestFrameGapNanos = Math.max(longestFrameGapNanos, now - lastFrameNanos);
+        }
+        lastFrameNanos = now;
+        frameCount++;
+    }
+
+    /**
+     * Record the swap being cancelled
+     */
+    void onCancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Record the swap ending
+     *
+     * @param now the current time
+     */
+    void onEnd(long now) {
+        endNanos = now;
+    }
+
+    public boolean isReverse() {
+        return isReverse;
+    }
+
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    public int getToIndex() {
+        return toIndex;
+    }
+
+    /**
+     * @return the time taken to decode and bind the drawables or -1 if the
+     * swap was cancelled before they were ready
+     */
+    public long getDecodeNanos() {
+        return decodedNanos < 0 ? -1 : decodedNanos - requestNanos;
+    }
+
+    /**
+     * @return the time from the show request to the first animation frame or
+     * -1 if no frame was delivered
+     */
+    public long getFirstFrameLatencyNanos() {
+        return firstFrameNanos < 0 ? -1 : firstFrameNanos - requestNanos;
+    }
+
+    /**
+     * @return the time from the show request to the end of the swap
+     */
+    public long getTotalNanos() {
+        return endNanos < 0 ? -1 : endNanos - requestNanos;
+    }
+
+    /**
+     * @return the number of animation frames delivered
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the number of frames the display could have shown over the
+     * animation duration
+     */
+    public int getExpectedFrameCount() {
+        return expectedFrameCount;
+    }
+
+    /**
+     * @return the longest time between two consecutive animation frames
+     */
+    public long getLongestFrameGapNanos() {
+        return longestFrameGapNanos;
+    }
+
+    /**
+     * @return true if the swap was cancelled before it ended
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    @Override
+    public String toString() {
+        return "SwapMetrics{" + fromIndex + (isReverse ? " <- " : " -> ") + toIndex
+                + ", decode=" + getDecodeNanos()
+                + ", firstFrame=" + getFirstFrameLatencyNanos()
+                + ", frames=" + frameCount + "/" + expectedFrameCount
+                + ", longestGap=" + longestFrameGapNanos
+                + ", cancelled=" + isCancelled + "}";
+    }
+}
@@ -0,0 +1,49 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Decides the quality swaps are played at from the time between their
+ * frames, so slow devices can give up effects to keep up. A policy keeps
+ * state across swaps and is used by a single view, all calls are made on the
+ * main thread.
+ */
+public interface SwapQualityPolicy {
+
+    /**
+     * Play swaps at the full duration, with layers if the behaviour uses them
+     */
+    int QUALITY_FULL = 0;
+
+    /**
+     * Play swaps at half the duration without layers
+     */
+    int QUALITY_REDUCED = 1;
+
+    /**
+     * Skip the swap animation, ending swaps as soon as they start
+     */
+    int QUALITY_MINIMAL = 2;
+
+    /**
+     * Called when a swap animation is about to start
+     *
+     * @param frameIntervalNanos the frame interval of the display
+     * @return the quality to play the swap at
+     */
+    int onSwapStart(long frameIntervalNanos);
+
+    /**
+     * Called on every frame of the swap animation. Degrading to
+     * {@link #QUALITY_REDUCED} drops layers for the rest of the swap and
+     * {@link #QUALITY_MINIMAL} ends it, the duration changes from the next swap.
+     *
+     * @param frameTimeNanos the frame time in the {@link System#nanoTime()} base
+     * @return the quality for the rest of the swap
+     */
+    int onFrame(long frameTimeNanos);
+
+    /**
+     * Called when the swap animation ends or is cancelled. Not called for
+     * swaps started at {@link #QUALITY_MINIMAL}, which play no frames.
+     */
+    void onSwapEnd();
+}
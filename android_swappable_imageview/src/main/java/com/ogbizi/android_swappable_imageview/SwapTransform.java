@@ -0,0 +1,80 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Transform of an image view at the start or end of a swap, described by a
+ * {@link SwappableImageView.KeyframeBehavior}. Starts as the identity.
+ */
+public class SwapTransform {
+
+    static final int TRANSLATION_X = 0;
+    static final int TRANSLATION_Y = 1;
+    static final int SCALE_X = 2;
+    static final int SCALE_Y = 3;
+    static final int ALPHA = 4;
+    static final int ROTATION = 5;
+    static final int PROPERTY_COUNT = 6;
+
+    private final float[] mValues = new float[PROPERTY_COUNT];
+
+    public SwapTransform() {
+        reset();
+    }
+
+    /**
+     * Reset to the identity transform
+     */
+    public void reset() {
+        mValues[TRANSLATION_X] = 0;
+        mValues[TRANSLATION_Y] = 0;
+        mValues[SCALE_X] = 1;
+        mValues[SCALE_Y] = 1;
+        mValues[ALPHA] = 1;
+        mValues[ROTATION] = 0;
+    }
+
+    /**
+     * Set the translation of the image view
+     *
+     * @param x the horizontal translation in pixels
+     * @param y the vertical translation in pixels
+     */
+    public void setTranslation(float x, float y) {
+        mValues[TRANSLATION_X] = x;
+        mValues[TRANSLATION_Y] = y;
+    }
+
+    /**
+     * Set the scale of the image view around its pivot
+     *
+     * @param x the horizontal scale
+     * @param y the vertical scale
+     */
+    public void setScale(float x, float y) {
+        mValues[SCALE_X] = x;
+        mValues[SCALE_Y] = y;
+    }
+
+    /**
+     * @param alpha the opacity of the image view between 0..1
+     */
+    public void setAlpha(float alpha) {
+        mValues[ALPHA] = alpha;
+    }
+
+    /**
+     * @param rotation the rotation of the image view around its pivot in degrees
+     */
+    public void setRotation(float rotation) {
+        mValues[ROTATION] = rotation;
+    }
+
+    /**
+     * Get a property of the transform
+     *
+     * @param property one of the property indices
+     * @return the property value
+     */
+    float get(int property) {
+        return mValues[property];
+    }
+}
@@ -0,0 +1,102 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Supplies the images of a {@link SwappableImageView} by position, for
+ * sequences too large to set up front. The view only asks for the sources
+ * near its current position, so implementations can page them in lazily.
+ * Call the notify methods on the main thread after the data changes.
+ */
+public abstract class SwappableImageAdapter {
+
+    private final ArrayList<Observer> mObservers = new ArrayList<>(1);
+
+    /**
+     * Get the number of images
+     *
+     * @return the image count
+     */
+    public abstract int getCount();
+
+    /**
+     * Get the source of the image at the position, compared with
+     * {@link ImageSource#equals} so equal sources share a decode
+     *
+     * @param position the position of the image
+     * @return the image source or null to show nothing
+     */
+    @Nullable
+    public abstract ImageSource getImageSource(int position);
+
+    /**
+     * Notify that any image may have changed and the count with them
+     */
+    public final void notifyDataSetChanged() {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onChanged();
+        }
+    }
+
+    /**
+     * Notify that the sources of a range of images changed
+     *
+     * @param positionStart the position of the first image changed
+     * @param itemCount     the number of images changed
+     */
+    public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onItemRangeChanged(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Notify that a range of images was inserted, moving those after it
+     *
+     * @param positionStart the position of the first image inserted
+     * @param itemCount     the number of images inserted
+     */
+    public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Notify that a range of images was removed, moving those after it
+     *
+     * @param positionStart the position of the first image removed
+     * @param itemCount     the number of images removed
+     */
+    public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    void registerObserver(@NonNull Observer observer) {
+        if (!mObservers.contains(observer)) {
+            mObservers.add(observer);
+        }
+    }
+
+    void unregisterObserver(@NonNull Observer observer) {
+        mObservers.remove(observer);
+    }
+
+    /**
+     * Receives the changes notified by the adapter
+     */
+    interface Observer {
+        void onChanged();
+
+        void onItemRangeChanged(int positionStart, int itemCount);
+
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+    }
+}
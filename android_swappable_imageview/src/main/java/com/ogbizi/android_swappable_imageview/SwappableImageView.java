@@ -1,18 +1,32 @@
 package com.ogbizi.android_swappable_imageview;
 
 import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
 
 import timber.log.Timber;
 
@@ -21,12 +35,65 @@ import timber.log.Timber;
  */
 public class SwappableImageView extends RelativeLayout {
 
-    private final List<Integer> mDrawables = new LinkedList<>();
+    /**
+     * Log every animation frame, compiled out unless changed here since frame
+     * callbacks must not allocate
+     */
+    static final boolean LOG_FRAMES = false;
+
+    private static boolean isTreePlanted = false;
+
+    private final SwapNavigator mNavigator = new SwapNavigator();
+    private ArrayList<ImageSource> mSources;
+    private SwappableImageAdapter mAdapter;
+    private SourceWindow mWindow;
     private boolean isReversing = false;
-    private boolean shouldLoop = false;
-    private int currentIndex = -1;
+    private int targetIndex = -1;
+    private int mQueuedSteps = 0;
     private ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+    private ValueAnimator settleAnimator = ValueAnimator.ofFloat(0, 1);
+    private long mSwapDuration = animator.getDuration();
+    private SwapQualityPolicy mQualityPolicy;
+    private int mQuality = SwapQualityPolicy.QUALITY_FULL;
+    private boolean isWatchingFrames = false;
+    private float mProgress = 0;
+    private boolean isScrubbing = false;
+    private boolean shouldSettleCommit = false;
+    private float mSettleFrom = 0;
+    private float mSettleTo = 0;
+    private SwipeGestureHandler mSwipeHandler;
+    private SwapFrameDriver mFrameDriver;
+    private boolean isDriven = false;
+    private long mDrivenStartNanos = -1;
     private Behavior mBehaviour;
+    private final KeyframeTable[] mKeyframes = new KeyframeTable[2];
+    private int mKeyframeWidth = -1;
+    private int mKeyframeHeight = -1;
+    private ImageLoader mLoader;
+    private ImageLoader.Request mPendingSwap;
+    private int mImageWidth = 0;
+    private int mImageHeight = 0;
+    private int mIntrinsicWidth = 0;
+    private int mIntrinsicHeight = 0;
+    private boolean hasLaidOut = false;
+    private int mLaidOutWidth = -1;
+    private int mLaidOutHeight = -1;
+    private int bindCount = 0;
+    private OnSwapMetricsListener mMetricsListener;
+    private SwapMetrics mMetrics;
+    private boolean isLayerActive = false;
+    private boolean isFlat = false;
+    private boolean wasLayerUsed = false;
+    private boolean isRecycled = false;
+    private boolean isDownsampled = false;
+    private int mTrimLevel = 0;
+    private boolean isProgressive = false;
+    private int mPlaceholderColor = Color.TRANSPARENT;
+    private final ArrayList<ImageCache.Key> mUpgrading = new ArrayList<>(2);
+    private int placeholderCount = 0;
+    private OnImageUpgradeListener mUpgradeListener;
+    private ImageView[] mSlots = new ImageView[2];
+    private ImageHandoff.Retained mRestored;
     protected ImageView primary;
     protected ImageView secondary;
 
@@ -50,15 +117,24 @@ public class SwappableImageView extends RelativeLayout {
      * @param attrs   the style attributes from xml
      */
     private void init(Context context, AttributeSet attrs) {
-        if (BuildConfig.DEBUG) {
-            Timber.plant(new Timber.DebugTree());
-        }
+        plantDebugTree();
         if (attrs != null)
             initAttributes(context, attrs);
+        mLoader = new ImageLoader(context);
         initListeners();
         initViews(context);
     }
 
+    /**
+     * Plant a single debug tree shared by every instance in debug builds
+     */
+    private static synchronized void plantDebugTree() {
+        if (BuildConfig.DEBUG && !isTreePlanted) {
+            Timber.plant(new Timber.DebugTree());
+            isTreePlanted = true;
+        }
+    }
+
     /**
      * Set up the initial config passes in from xml
      *
@@ -71,8 +147,12 @@ public class SwappableImageView extends RelativeLayout {
             setNext(a.getResourceId(R.styleable.SwappableImageView_src, 0));
             setPrevious(a.getResourceId(R.styleable.SwappableImageView_prevSrc, 0));
             setNext(a.getResourceId(R.styleable.SwappableImageView_nextSrc, 0));
-            shouldLoop = a.getBoolean(R.styleable.SwappableImageView_loop, false);
-            Timber.d("looping: %s", shouldLoop);
+            setLooping(a.getBoolean(R.styleable.SwappableImageView_loop, false));
+            isFlat = a.getBoolean(R.styleable.SwappableImageView_flat, false);
+            setSwipeEnabled(a.getBoolean(R.styleable.SwappableImageView_swipe, false));
+            isProgressive = a.getBoolean(R.styleable.SwappableImageView_progressive, false);
+            mSlots = new ImageView[Math.max(2, a.getInt(R.styleable.SwappableImageView_slots, 2))];
+            Timber.d("looping: %s, flat: %s, progressive: %s", isLooping(), isFlat, isProgressive);
         } catch (Exception e) {
             Timber.e(e);
         } finally {
@@ -85,18 +165,34 @@ public class SwappableImageView extends RelativeLayout {
      */
     protected void initListeners() {
         animator.addListener(new Animator.AnimatorListener() {
+            private boolean isCancelled;
+
             @Override
             public void onAnimationStart(Animator animation) {
+                isCancelled = false;
+                if (mMetrics != null) {
+                    mMetrics.onStart(animator.getDuration() * 1000000, getFrameIntervalNanos());
+                }
                 dispatch(MESSAGE.START);
             }
 
             @Override
             public void onAnimationEnd(Animator animation) {
+                if (isCancelled) {
+                    return;
+                }
                 dispatch(MESSAGE.END);
+                reportMetrics(false);
+                runQueuedSwaps();
             }
 
             @Override
             public void onAnimationCancel(Animator animation) {
+                isCancelled = true;
+                if (mMetrics != null) {
+                    mMetrics.onCancel();
+                }
+                mQueuedSteps = 0;
                 dispatch(MESSAGE.CANCEL);
             }
 
@@ -108,284 +204,2032 @@ public class SwappableImageView extends RelativeLayout {
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
+                long now = System.nanoTime();
+                if (mMetrics != null) {
+                    mMetrics.onFrame(now);
+                }
+                if (watchFrame(now)) {
+                    post(mEndSwap);
+                }
+                mProgress = animation.getAnimatedFraction();
                 dispatch(MESSAGE.UPDATE);
             }
         });
+        settleAnimator.setInterpolator(new DecelerateInterpolator());
+        settleAnimator.addListener(new AnimatorListenerAdapter() {
+            private boolean isCancelled;
+
+            @Override
+            public void onAnimationStart(Animator animation) {
+                isCancelled = false;
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                isCancelled = true;
+                dispatch(MESSAGE.CANCEL);
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (isCancelled) {
+                    return;
+                }
+                if (shouldSettleCommit) {
+                    dispatch(MESSAGE.END);
+                } else {
+                    dispatch(MESSAGE.CANCEL);
+                    dispatch(MESSAGE.RESET);
+                }
+                runQueuedSwaps();
+            }
+        });
+        settleAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                scrub(mSettleFrom + (mSettleTo - mSettleFrom) * animation.getAnimatedFraction());
+            }
+        });
     }
 
     /**
-     * Set up the views used for swapping behaviour
+     * Ticks the swap animation when it is driven by a shared frame driver
+     */
+    private final SwapFrameDriver.Client mFrameClient = new SwapFrameDriver.Client() {
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            if (mDrivenStartNanos < 0) {
+                mDrivenStartNanos = frameTimeNanos;
+            }
+            long duration = animator.getDuration() * 1000000;
+            float fraction = duration > 0 ? Math.min(1, (frameTimeNanos - mDrivenStartNanos) / (float) duration) : 1;
+            if (mMetrics != null) {
+                mMetrics.onFrame(System.nanoTime());
+            }
+            if (watchFrame(frameTimeNanos)) {
+                fraction = 1;
+            }
+            float played = isReversing ? 1 - fraction : fraction;
+            TimeInterpolator interpolator = animator.getInterpolator();
+            mProgress = interpolator != null ? interpolator.getInterpolation(played) : played;
+            dispatch(MESSAGE.UPDATE);
+            if (fraction >= 1) {
+                isDriven = false;
+                dispatch(MESSAGE.END);
+                reportMetrics(false);
+                runQueuedSwaps();
+            }
+            return isDriven;
+        }
+    };
+
+    /**
+     * Ends the animator early once the quality policy skips the rest of a swap,
+     * posted since the animator must not be ended from its own update
+     */
+    private final Runnable mEndSwap = new Runnable() {
+        @Override
+        public void run() {
+            if (animator.isRunning()) {
+                animator.end();
+            }
+        }
+    };
+
+    /**
+     * Set the duration of the swap animation
      *
-     * @param context the view context
+     * @param duration the duration in milliseconds
      */
-    protected void initViews(Context context) {
-        LayoutParams layoutParams = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-        primary = new ImageView(context);
-        secondary = new ImageView(context);
-        addView(primary, layoutParams);
-        addView(secondary, layoutParams);
-        setBehavior(new HorizontalSwappableImageBehavior());
+    public void setSwapDuration(long duration) {
+        mSwapDuration = duration;
     }
 
-    @Override
-    protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        Timber.i("on layout");
-        super.onLayout(changed, l, t, r, b);
-        mBehaviour.onReset(primary, secondary);
+    public long getSwapDuration() {
+        return mSwapDuration;
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        Timber.i("on measure");
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+    /**
+     * Set the policy watching the frames of swap animations to degrade their
+     * quality when frames are dropped, shortening the animation and dropping
+     * layers or skipping the animation, and to recover it later. The policy
+     * must not be shared with other views.
+     *
+     * @param policy the quality policy or null to always swap at full quality
+     * @see FrameBudgetQualityPolicy
+     */
+    public void setQualityPolicy(@Nullable SwapQualityPolicy policy) {
+        mQualityPolicy = policy;
+        isWatchingFrames = false;
+        mQuality = SwapQualityPolicy.QUALITY_FULL;
+    }
+
+    @Nullable
+    public SwapQualityPolicy getQualityPolicy() {
+        return mQualityPolicy;
     }
 
     /**
-     * Set the swapping behaviour
+     * Get the quality the last swap was played at
      *
-     * @param callback the callback used to implement behaviour
+     * @return one of the {@link SwapQualityPolicy} qualities
      */
-    public void setBehavior(Behavior callback) {
-        mBehaviour = callback;
-        dispatch(MESSAGE.ATTACH);
+    public int getSwapQuality() {
+        return mQuality;
     }
 
     /**
-     * Notify callbacks of the messages defined
+     * Pass a swap animation frame to the quality policy, dropping layers as
+     * soon as the quality is reduced
      *
-     * @param message the message passed
+     * @param frameTimeNanos the frame time in the {@link System#nanoTime()} base
+     * @return true if the rest of the swap should be skipped
      */
-    private void dispatch(MESSAGE message) {
-        switch (message) {
-        case END:
-            mBehaviour.onEnd(isReversing, primary, secondary);
-            break;
-        case START:
-            mBehaviour.onStart(isReversing, primary, secondary);
-            break;
-        case CANCEL:
-            mBehaviour.onCancel(primary, secondary);
-            break;
-        case RESET:
-            mBehaviour.onReset(primary, secondary);
-            break;
-        case UPDATE:
-            mBehaviour.onUpdate(animator.getAnimatedFraction(), isReversing, primary, secondary);
-            break;
-        case ATTACH:
-            mBehaviour.onAttach(this);
-            break;
+    private boolean watchFrame(long frameTimeNanos) {
+        if (!isWatchingFrames) {
+            return false;
         }
+        int quality = mQualityPolicy.onFrame(frameTimeNanos);
+        if (quality > mQuality) {
+            Timber.i("swap quality: %s => %s", mQuality, quality);
+            mQuality = quality;
+            releaseLayers();
+        }
+        return mQuality >= SwapQualityPolicy.QUALITY_MINIMAL;
     }
 
     /**
-     * Set the ordered list of drawables used for selecting next and previous
+     * Stop passing frames to the quality policy once the swap is over
+     */
+    private void stopWatchingFrames() {
+        if (isWatchingFrames) {
+            isWatchingFrames = false;
+            mQualityPolicy.onSwapEnd();
+        }
+    }
+
+    /**
+     * Set the driver ticking swap animations in place of this view's own
+     * animator, {@link SwapFrameDriver#getInstance()} shares a single frame
+     * callback between every view using it. Behaviours receive the same
+     * updates either way.
      *
-     * @param index     the position to reset to
-     * @param drawables the list of drawables use
+     * @param driver the frame driver or null to use the view's animator
      */
-    public void setDrawables(int index, @DrawableRes Integer... drawables) {
-        mDrawables.clear();
-        mDrawables.addAll(Arrays.asList(drawables));
-        setCurrentIndex(index);
+    public void setFrameDriver(@Nullable SwapFrameDriver driver) {
+        if (driver == mFrameDriver) {
+            return;
+        }
+        if (isDriven) {
+            mFrameDriver.remove(mFrameClient);
+            if (driver != null) {
+                driver.add(mFrameClient);
+            } else {
+                isDriven = false;
+                dispatch(MESSAGE.END);
+                reportMetrics(false);
+            }
+        }
+        mFrameDriver = driver;
     }
 
     /**
-     * Get the list of drawable resource ids used in swapping
+     * Get the driver ticking swap animations
      *
-     * @return the array list of drawables
+     * @return the frame driver or null if the view's animator is used
      */
-    public List getDrawables() {
-        return mDrawables;
+    @Nullable
+    public SwapFrameDriver getFrameDriver() {
+        return mFrameDriver;
     }
 
     /**
-     * Set the next image view drawable to show
+     * Start the swap animation on the frame driver if set or the animator, at
+     * the quality given by the quality policy
      *
-     * @param drawableRes the drawable to show
+     * @param reverse true to play the swap towards the previous drawable
      */
-    public void setNext(@DrawableRes int drawableRes) {
-        Timber.i("next: %s", drawableRes);
-        if (drawableRes != 0) {
-            mDrawables.add(currentIndex + 1, drawableRes);
-            currentIndex = Math.max(0, currentIndex);
-            Timber.d("current: %s => %s", currentIndex, mDrawables);
+    private void startAnimation(boolean reverse) {
+        removeCallbacks(mEndSwap);
+        mQuality = SwapQualityPolicy.QUALITY_FULL;
+        if (mQualityPolicy != null) {
+            mQuality = mQualityPolicy.onSwapStart(getFrameIntervalNanos());
+            // skipped swaps play no frames for the policy to judge
+            isWatchingFrames = mQuality < SwapQualityPolicy.QUALITY_MINIMAL;
+        }
+        animator.setDuration(mQuality == SwapQualityPolicy.QUALITY_FULL ? mSwapDuration : mSwapDuration / 2);
+        if (mQuality >= SwapQualityPolicy.QUALITY_MINIMAL) {
+            Timber.d("skip swap animation");
+            dispatch(MESSAGE.START);
+            dispatch(MESSAGE.END);
+            reportMetrics(false);
+            runQueuedSwaps();
+            return;
+        }
+        if (mFrameDriver == null) {
+            if (reverse) {
+                animator.reverse();
+            } else {
+                animator.start();
+            }
+            return;
         }
+        mDrivenStartNanos = -1;
+        isDriven = true;
+        if (mMetrics != null) {
+            mMetrics.onStart(animator.getDuration() * 1000000, getFrameIntervalNanos());
+        }
+        dispatch(MESSAGE.START);
+        mFrameDriver.add(mFrameClient);
     }
 
     /**
-     * Set the previous image view drawable to show from the current index
-     *
-     * @param drawableRes the drawable to set as previous
+     * Stop the swap animating, scrubbed or settling without making its target
+     * current, behaviours are sent a cancel instead of an end
      */
-    public void setPrevious(@DrawableRes int drawableRes) {
-        Timber.i("previous: %s", drawableRes);
-        if (drawableRes != 0) {
-            mDrawables.add(Math.max(0, currentIndex), drawableRes);
-            currentIndex += 1;
-            Timber.d("current: %s => %s", currentIndex, mDrawables);
+    private void cancelAnimation() {
+        if (animator.isStarted()) {
+            animator.cancel();
+        }
+        if (isDriven) {
+            stopDriven();
+            dispatch(MESSAGE.CANCEL);
+        }
+        if (isScrubbing) {
+            isScrubbing = false;
+            dispatch(MESSAGE.CANCEL);
+        }
+        if (settleAnimator.isStarted()) {
+            settleAnimator.cancel();
         }
     }
 
     /**
-     * Set if swapping should loop over list of drawables
+     * Stop ticking the swap animation from the frame driver
+     */
+    private void stopDriven() {
+        if (isDriven) {
+            isDriven = false;
+            mFrameDriver.remove(mFrameClient);
+        }
+    }
+
+    /**
+     * Set the listener to report the metrics of every swap to. Metrics are only
+     * recorded while a listener is set.
      *
-     * @param loop true to wrap around end of list
+     * @param listener the metrics listener or null to stop recording
      */
-    public void setLooping(boolean loop) {
-        shouldLoop = loop;
+    public void setOnSwapMetricsListener(OnSwapMetricsListener listener) {
+        mMetricsListener = listener;
+        if (listener == null) {
+            mMetrics = null;
+        }
     }
 
     /**
-     * Get if swapping should loop over list of drawables
+     * Report the metrics of the swap being recorded, if any
      *
-     * @return true if the looping is turned on
+     * @param cancelled true if the swap was stopped before it ended
      */
-    public boolean isLooping() {
-        return shouldLoop;
+    private void reportMetrics(boolean cancelled) {
+        SwapMetrics metrics = mMetrics;
+        if (metrics != null) {
+            mMetrics = null;
+            if (cancelled) {
+                metrics.onCancel();
+            }
+            metrics.onEnd(System.nanoTime());
+            mMetricsListener.onSwapMetrics(metrics);
+        }
     }
 
     /**
-     * Limit value to bound range. Example #bound(-4, 0, 10) = 0
+     * Get the time between frames of the default display
      *
-     * @param value the value to limit
-     * @param min   the minimum value allowed
-     * @param max   the maximum value allowed
-     * @return the range limited value
+     * @return the frame interval in nanoseconds
      */
-    private static int bound(int value, int min, int max) {
-        return Math.min(Math.max(value, min), max);
+    private long getFrameIntervalNanos() {
+        WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager == null ? 0 : windowManager.getDefaultDisplay().getRefreshRate();
+        return (long) (1000000000 / (refreshRate > 0 ? refreshRate : 60));
     }
 
     /**
-     * Wraps an integer value around a range Example #wrap(-4, 0, 10) = 10
+     * Set up the views used for swapping behaviour
      *
-     * @param value the value to wrap
-     * @param min   the minimum value allowed
-     * @param max   the maximum value allowed
-     * @return the range limited value
+     * @param context the view context
      */
-    private static int wrap(int value, int min, int max) {
-        return value < min ? max : value > max ? min : value;
+    protected void initViews(Context context) {
+        for (int i = 0; i < mSlots.length; i++) {
+            mSlots[i] = createImageView(context);
+            mSlots[i].setVisibility(i < 2 ? VISIBLE : INVISIBLE);
+        }
+        primary = mSlots[0];
+        secondary = mSlots[1];
+        setChildrenDrawingOrderEnabled(true);
+        if (isFlat) {
+            setWillNotDraw(false);
+        } else {
+            addImageViews();
+        }
+        setBehavior(new HorizontalSwappableImageBehavior());
     }
 
     /**
-     * Get the current index of images
+     * Create an image view for a slot
      *
-     * @return the current displayed image index
+     * @param context the view context
+     * @return the image view
      */
-    public int getCurrentIndex() {
-        return currentIndex;
+    protected ImageView createImageView(Context context) {
+        return new ImageView(context);
     }
 
     /**
-     * Set the current image to be displayed by index
+     * Add the image views as children drawn by the layout
+     */
+    private void addImageViews() {
+        for (ImageView slot : mSlots) {
+            addImageView(slot);
+        }
+    }
+
+    private void addImageView(ImageView slot) {
+        addView(slot, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        int primaryIndex = indexOfChild(primary);
+        int secondaryIndex = indexOfChild(secondary);
+        if (primaryIndex < 0 || secondaryIndex < 0) {
+            return i;
+        }
+        if (i == childCount - 1) {
+            return secondaryIndex;
+        }
+        if (i == childCount - 2) {
+            return primaryIndex;
+        }
+        int child = i;
+        if (child >= Math.min(primaryIndex, secondaryIndex)) {
+            child++;
+        }
+        if (child >= Math.max(primaryIndex, secondaryIndex)) {
+            child++;
+        }
+        return child;
+    }
+
+    /**
+     * Set the number of image views kept bound around the current drawable.
+     * Two slots hold the current and swapping in images. Further slots hold
+     * the next and previous images, then those after them, so swaps to them
+     * start without decoding or binding. Slots are refilled after each swap.
      *
-     * @param index the drawable index
+     * @param count the number of slots, at least 2
      */
-    public void setCurrentIndex(int index) {
-        currentIndex = bound(index, 0, mDrawables.size() - 1);
-        dispatch(MESSAGE.RESET);
+    public void setSlotCount(int count) {
+        if (count < 2) {
+            throw new IllegalArgumentException("slot count must be at least 2: " + count);
+        }
+        if (count == mSlots.length) {
+            return;
+        }
+        ImageView[] slots = new ImageView[count];
+        slots[0] = primary;
+        slots[1] = secondary;
+        int size = 2;
+        for (ImageView slot : mSlots) {
+            if (slot == primary || slot == secondary) {
+                continue;
+            }
+            if (size < count) {
+                slots[size++] = slot;
+            } else {
+                releaseImage(slot);
+                removeView(slot);
+            }
+        }
+        for (; size < count; size++) {
+            slots[size] = createImageView(getContext());
+            slots[size].setVisibility(INVISIBLE);
+            if (!isFlat) {
+                addImageView(slots[size]);
+            }
+        }
+        mSlots = slots;
+        if (mAdapter != null) {
+            mWindow = new SourceWindow(Math.max(2, count));
+        }
+        postRefillSlots();
     }
 
     /**
-     * Get the index of the next drawable
+     * Get the number of image views kept bound around the current drawable
      *
-     * @return the currentIndex + 1 or wrap around max if looping
+     * @return the slot count
      */
-    public int getNextIndex() {
-        Timber.i("get next: looping=%s", shouldLoop);
-        int min = 0;
-        int max = mDrawables.size() - 1;
-        int index = currentIndex + 1;
-        int nextIndex = isLooping() ? wrap(index, min, max) : bound(index, min, max);
-        Timber.d("previous: %s, current: %s", nextIndex, currentIndex);
-        return nextIndex;
+    public int getSlotCount() {
+        return mSlots.length;
     }
 
     /**
-     * Get the index of the previous drawable
+     * Refills the slots around the current drawable once the swap is over
+     */
+    private final Runnable mRefillSlots = new Runnable() {
+        @Override
+        public void run() {
+            refillSlots();
+        }
+    };
+
+    /**
+     * Refill the slots after the current frame, coalescing repeated calls
+     */
+    private void postRefillSlots() {
+        if (mSlots.length > 2) {
+            removeCallbacks(mRefillSlots);
+            post(mRefillSlots);
+        }
+    }
+
+    /**
+     * Bind the drawables nearest the current one, alternating next and
+     * previous, to the slots other than the primary one. Slots already bound
+     * to one of them are kept and the others are rebound.
+     */
+    void refillSlots() {
+        if (!hasLaidOut || isSwapping() || isDownsampled || mSlots.length <= 2) {
+            return;
+        }
+        int current = getCurrentIndex();
+        int size = mSlots.length - 1;
+        int[] indices = new int[size];
+        ImageCache.Key[] keys = new ImageCache.Key[size];
+        int wanted = 0;
+        for (int step = 1; wanted < size && step <= mNavigator.size(); step++) {
+            wanted = addWanted(indices, keys, wanted, mNavigator.getIndex(current + step), current);
+            if (wanted < size) {
+                wanted = addWanted(indices, keys, wanted, mNavigator.getIndex(current - step), current);
+            }
+        }
+        boolean[] isHeld = new boolean[wanted];
+        boolean[] isKept = new boolean[mSlots.length];
+        for (int i = 0; i < mSlots.length; i++) {
+            Object key = mSlots[i].getTag(R.id.swappable_image_request);
+            for (int j = 0; j < wanted && mSlots[i] != primary; j++) {
+                if (!isHeld[j] && keys[j].equals(key)) {
+                    isHeld[j] = true;
+                    isKept[i] = true;
+                    break;
+                }
+            }
+        }
+        int slot = 0;
+        for (int j = 0; j < wanted; j++) {
+            if (isHeld[j]) {
+                continue;
+            }
+            while (isKept[slot] || mSlots[slot] == primary) {
+                slot++;
+            }
+            isKept[slot] = true;
+            Timber.d("refill slot: %s => %s", slot, indices[j]);
+            bindImage(mSlots[slot], indices[j]);
+        }
+    }
+
+    private int addWanted(int[] indices, ImageCache.Key[] keys, int wanted, int index, int current) {
+        if (index < 0 || index == current) {
+            return wanted;
+        }
+        for (int i = 0; i < wanted; i++) {
+            if (indices[i] == index) {
+                return wanted;
+            }
+        }
+        indices[wanted] = index;
+        keys[wanted] = getImageKey(index);
+        return wanted + 1;
+    }
+
+    /**
+     * Make the slot bound to the current drawable the primary one, so it is
+     * shown without being rebound
+     */
+    private void promoteSlot() {
+        ImageCache.Key key = getImageKey(getCurrentIndex());
+        if (key.equals(primary.getTag(R.id.swappable_image_request))) {
+            return;
+        }
+        ImageView slot = findSlot(key);
+        if (slot == secondary) {
+            setRoles(secondary, primary);
+        } else if (slot != null) {
+            setRoles(slot, secondary);
+        }
+    }
+
+    /**
+     * Make the slot bound to the drawable at the index the secondary one, or
+     * keep the secondary slot to bind it if none is
      *
-     * @return the currentIndex - 1 or wrap around min if looping
+     * @param index the index of the drawable to swap in
      */
-    public int getPreviousIndex() {
-        Timber.i("get previous: looping=%s", shouldLoop);
-        int min = 0;
-        int max = mDrawables.size() - 1;
-        int index = currentIndex - 1;
-        int prevIndex = isLooping() ? wrap(index, min, max) : bound(index, min, max);
-        Timber.d("previous: %s, current: %s", prevIndex, currentIndex);
-        return prevIndex;
+    private void selectSecondary(int index) {
+        ImageView slot = findSlot(getImageKey(index));
+        if (slot != null && slot != secondary) {
+            setRoles(primary, slot);
+        }
     }
 
     /**
-     * Start the act of showing the next drawable
+     * Find the slot other than the primary one bound or being bound to a key
      *
-     * @param force true to force a start
+     * @param key the image key
+     * @return the slot or null if none is
      */
-    public void showNext(boolean force) {
-        Timber.i("show next: force=%s", force);
-        if (!animator.isStarted() || force) {
-            int nextIndex = getNextIndex();
-            if (nextIndex != currentIndex) {
-                isReversing = false;
-                primary.setImageResource(mDrawables.get(currentIndex));
-                secondary.setImageResource(mDrawables.get(nextIndex));
-                animator.start();
+    @Nullable
+    private ImageView findSlot(ImageCache.Key key) {
+        for (ImageView slot : mSlots) {
+            if (slot != primary && key.equals(slot.getTag(R.id.swappable_image_request))) {
+                return slot;
             }
         }
+        return null;
     }
 
     /**
-     * Start the reverse action of showing the previous drawable
+     * Assign the primary and secondary slots, showing only those two and
+     * drawing the secondary one on top
      *
-     * @param force true to force an animation start
+     * @param newPrimary   the slot showing the current drawable
+     * @param newSecondary the slot used for swapping
      */
-    public void showPrevious(boolean force) {
-        Timber.i("show previous: force=%s", force);
-        if (!animator.isStarted() || force) {
-            int prevIndex = getPreviousIndex();
-            if (prevIndex != currentIndex) {
-                isReversing = true;
-                primary.setImageResource(mDrawables.get(currentIndex));
-                secondary.setImageResource(mDrawables.get(prevIndex));
-                animator.reverse();
+    private void setRoles(ImageView newPrimary, ImageView newSecondary) {
+        releaseLayers();
+        for (ImageView slot : mSlots) {
+            slot.setVisibility(slot == newPrimary || slot == newSecondary ? VISIBLE : INVISIBLE);
+        }
+        primary = newPrimary;
+        secondary = newSecondary;
+        updateIntrinsicSize();
+        invalidate();
+    }
+
+    /**
+     * Set if the images should be drawn directly onto this view's canvas
+     * instead of through child image views. Behaviours keep working on the
+     * image views passed to them, which are then only used to hold the
+     * drawable and transform and never measured or laid out by a parent.
+     *
+     * @param flat true to draw without child views
+     */
+    public void setFlatRendering(boolean flat) {
+        if (flat == isFlat) {
+            return;
+        }
+        isFlat = flat;
+        if (flat) {
+            for (ImageView slot : mSlots) {
+                removeView(slot);
             }
+            setWillNotDraw(false);
+        } else {
+            addImageViews();
+            setWillNotDraw(getBackground() == null);
         }
+        updateIntrinsicSize();
+        requestLayout();
+        invalidate();
     }
 
     /**
-     * The swappable image view behaviour
+     * Keep the intrinsic size of the current image for a flat view to measure
+     * from, laying out again when it changes. Placeholders have no intrinsic
+     * size until upgraded, so the last size known is kept while they show.
      */
-    public interface Behavior {
-        /**
-         * Called when behaviour is attached to {@link SwappableImageView}
-         *
-         * @param view the swappable image view attached
-         */
-        void onAttach(SwappableImageView view);
+    private void updateIntrinsicSize() {
+        Drawable drawable = primary.getDrawable();
+        if (drawable instanceof PlaceholderDrawable && ((PlaceholderDrawable) drawable).isUpgraded()) {
+            drawable = ((PlaceholderDrawable) drawable).getDrawable();
+        }
+        if (!isFlat || drawable == null) {
+            return;
+        }
+        int width = drawable.getIntrinsicWidth() < 0 ? mIntrinsicWidth : drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight() < 0 ? mIntrinsicHeight : drawable.getIntrinsicHeight();
+        if (width != mIntrinsicWidth || height != mIntrinsicHeight) {
+            Timber.d("intrinsic size: %sx%s", width, height);
+            mIntrinsicWidth = width;
+            mIntrinsicHeight = height;
+            requestLayout();
+        }
+    }
 
-        /**
-         * Reset the state of the swap image views. Should be called when layout changes
-         * occur.
-         *
-         * @param primary   the current image view
-         * @param secondary the image view used for swapping
-         */
-        void onReset(ImageView primary, ImageView secondary);
+    /**
+     * Get if the images are drawn without child views
+     *
+     * @return true if flat rendering is on
+     */
+    public boolean isFlatRendering() {
+        return isFlat;
+    }
 
-        /**
-         * Called at the start of the swap
-         *
-         * @param isReverse if the swap is happening in reverse
-         * @param primary   the image view currently displayed
+    /**
+     * Downsamples the displayed image once the cache alone cannot free enough
+     * memory
+     */
+    private final ComponentCallbacks2 mTrimCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+                downsample(level);
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            downsample(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    /**
+     * Rebind the displayed image at half the size and release the one swapped
+     * out, evicting the full size decodes as they are released. The full size
+     * is restored from the next swap.
+     *
+     * @param level the trim level downsampling for
+     */
+    private void downsample(int level) {
+        if (isDownsampled || isSwapping() || !hasLaidOut) {
+            return;
+        }
+        Timber.i("downsample: level=%s", level);
+        isDownsampled = true;
+        mTrimLevel = level;
+        removeCallbacks(mRefillSlots);
+        for (ImageView slot : mSlots) {
+            if (slot != primary) {
+                releaseImage(slot);
+            }
+        }
+        bindImage(primary, getCurrentIndex());
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(mTrimCallbacks);
+        if (isRecycled) {
+            isRecycled = false;
+            if (mAdapter != null) {
+                // changes notified while detached were missed
+                mAdapter.registerObserver(mAdapterObserver);
+                mAdapterObserver.onChanged();
+            } else {
+                dispatch(MESSAGE.RESET);
+                postRefillSlots();
+            }
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.currentIndex = getCurrentIndex();
+        state.isLooping = isLooping();
+        if (mAdapter == null && mNavigator.size() * 4L <= SavedState.MAX_SAVED_BYTES) {
+            int[] drawables = mNavigator.getValues().toArray();
+            String[] sources = null;
+            if (mSources != null) {
+                sources = new String[mSources.size()];
+                for (int i = 0; i < sources.length; i++) {
+                    ImageSource source = mSources.get(i);
+                    sources[i] = source != null ? source.getSavedString() : null;
+                }
+            }
+            if (SavedState.getParcelSize(drawables, sources) <= SavedState.MAX_SAVED_BYTES) {
+                state.drawables = drawables;
+                state.sources = sources;
+            } else {
+                Timber.w("sequence too large to save, saving the index only");
+            }
+        }
+        ImageCache.Key[] keys = new ImageCache.Key[mSlots.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (ImageCache.Key) mSlots[i].getTag(R.id.swappable_image_bound);
+        }
+        state.handoffToken = ImageHandoff.getInstance(getContext())
+                .retain(ImageHandoff.getActivity(getContext()), mLoader.getCache(), keys);
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState saved = (SavedState) state;
+        super.onRestoreInstanceState(saved.getSuperState());
+        releaseRestored();
+        if (saved.handoffToken != 0) {
+            mRestored = ImageHandoff.getInstance(getContext()).claim(saved.handoffToken);
+        }
+        Timber.i("restore: index=%s, retained=%s", saved.currentIndex, mRestored != null);
+        setLooping(saved.isLooping);
+        // with an adapter set the images come from it and only the index is restored
+        if (saved.drawables != null && mAdapter == null) {
+            mNavigator.setAll(saved.currentIndex, saved.drawables);
+            mSources = null;
+            if (saved.sources != null) {
+                mSources = new ArrayList<>(saved.sources.length);
+                for (String source : saved.sources) {
+                    mSources.add(ImageSource.fromSavedString(source));
+                }
+            }
+        }
+        setCurrentIndex(saved.currentIndex);
+        if (hasLaidOut) {
+            postReleaseRestored();
+        }
+    }
+
+    /**
+     * Releases the decodes handed over from the saved view once the slots
+     * had the chance to show them
+     */
+    private final Runnable mReleaseRestored = new Runnable() {
+        @Override
+        public void run() {
+            releaseRestored();
+        }
+    };
+
+    /**
+     * Release the handed over decodes after the slots are refilled, which is
+     * posted first
+     */
+    private void postReleaseRestored() {
+        if (mRestored != null) {
+            removeCallbacks(mReleaseRestored);
+            post(mReleaseRestored);
+        }
+    }
+
+    /**
+     * Drop the cache references of the decodes handed over from the saved view
+     */
+    private void releaseRestored() {
+        if (mRestored != null) {
+            mRestored.release();
+            mRestored = null;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().getApplicationContext().unregisterComponentCallbacks(mTrimCallbacks);
+        if (mAdapter != null) {
+            // the adapter may outlive the activity holding the view
+            mAdapter.unregisterObserver(mAdapterObserver);
+        }
+        recycle();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Finish any swap in progress and release the decoded images back to the
+     * cache, for adapters to call when the view is recycled. The images are
+     * bound again from the current index once the view is reattached or its
+     * drawables are set.
+     */
+    public void recycle() {
+        Timber.i("recycle");
+        mQueuedSteps = 0;
+        cancelPendingSwap();
+        if (animator.isStarted()) {
+            animator.end();
+        }
+        if (isDriven) {
+            stopDriven();
+            dispatch(MESSAGE.END);
+            reportMetrics(false);
+        }
+        if (isScrubbing) {
+            isScrubbing = false;
+            dispatch(MESSAGE.CANCEL);
+            dispatch(MESSAGE.RESET);
+        }
+        if (settleAnimator.isStarted()) {
+            settleAnimator.end();
+        }
+        removeCallbacks(mRefillSlots);
+        releaseSlots();
+        releaseRestored();
+        isRecycled = true;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        int width = ImageLoader.getSizeBucket(w - getPaddingLeft() - getPaddingRight());
+        int height = ImageLoader.getSizeBucket(h - getPaddingTop() - getPaddingBottom());
+        if (width != mImageWidth || height != mImageHeight) {
+            Timber.d("image size: %sx%s", width, height);
+            mImageWidth = width;
+            mImageHeight = height;
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        Timber.i("on layout");
+        hasLaidOut = true;
+        if (isFlat) {
+            layoutFlatImage(primary);
+            layoutFlatImage(secondary);
+        } else {
+            super.onLayout(changed, l, t, r, b);
+        }
+        int width = r - l;
+        int height = b - t;
+        if (width != mLaidOutWidth || height != mLaidOutHeight) {
+            mLaidOutWidth = width;
+            mLaidOutHeight = height;
+            mKeyframeWidth = -1;
+            mBehaviour.onReset(primary, secondary);
+            prefetchThumbnails();
+            postRefillSlots();
+            postReleaseRestored();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        Timber.i("on measure");
+        if (isFlat) {
+            int width = getPaddingLeft() + getPaddingRight() + mIntrinsicWidth;
+            int height = getPaddingTop() + getPaddingBottom() + mIntrinsicHeight;
+            setMeasuredDimension(
+                    resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+                    resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+            return;
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        measureChildren(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Size a flat image view to the content bounds so behaviours can read its
+     * measured size and the image matrix is configured
+     *
+     * @param image the image view to lay out
+     */
+    private void layoutFlatImage(ImageView image) {
+        int width = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        int height = getMeasuredHeight() - getPaddingTop() - getPaddingBottom();
+        if (image.getMeasuredWidth() != width || image.getMeasuredHeight() != height) {
+            image.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                          MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+            image.layout(0, 0, width, height);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (isFlat) {
+            drawFlatImage(canvas, primary);
+            drawFlatImage(canvas, secondary);
+        }
+    }
+
+    /**
+     * Draw a flat image view with its transform, clipped to the content bounds
+     * as a child view would be
+     *
+     * @param canvas the canvas to draw on
+     * @param image  the image view to draw
+     */
+    private void drawFlatImage(Canvas canvas, ImageView image) {
+        if (image.getVisibility() != VISIBLE || image.getDrawable() == null) {
+            return;
+        }
+        int count = canvas.save();
+        canvas.clipRect(getPaddingLeft(), getPaddingTop(),
+                        getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        canvas.concat(image.getMatrix());
+        float alpha = image.getAlpha();
+        if (alpha < 1) {
+            canvas.saveLayerAlpha(0, 0, image.getWidth(), image.getHeight(),
+                                  Math.round(alpha * 255), Canvas.ALL_SAVE_FLAG);
+        }
+        image.draw(canvas);
+        canvas.restoreToCount(count);
+    }
+
+    /**
+     * Set the swapping behaviour
+     *
+     * @param callback the callback used to implement behaviour
+     */
+    public void setBehavior(Behavior callback) {
+        mBehaviour = callback;
+        mKeyframeWidth = -1;
+        dispatch(MESSAGE.ATTACH);
+    }
+
+    /**
+     * Set the loader used to decode drawables off the main thread
+     *
+     * @param loader the image loader to use
+     */
+    public void setImageLoader(@NonNull ImageLoader loader) {
+        cancelPendingSwap();
+        releaseSlots();
+        releaseRestored();
+        mLoader = loader;
+    }
+
+    /**
+     * Get the loader used to decode drawables
+     *
+     * @return the image loader
+     */
+    public ImageLoader getImageLoader() {
+        return mLoader;
+    }
+
+    /**
+     * Notify callbacks of the messages defined
+     *
+     * @param message the message passed
+     */
+    private void dispatch(MESSAGE message) {
+        switch (message) {
+        case END:
+            mBehaviour.onEnd(isReversing, primary, secondary);
+            // behaviours written before the view committed the target may have
+            if (getCurrentIndex() != getTargetIndex()) {
+                setCurrentIndex(getTargetIndex());
+            }
+            targetIndex = -1;
+            releaseLayers();
+            stopWatchingFrames();
+            break;
+        case START:
+            promoteLayers();
+            mBehaviour.onStart(isReversing, primary, secondary);
+            compileKeyframes();
+            break;
+        case CANCEL:
+            mBehaviour.onCancel(primary, secondary);
+            targetIndex = -1;
+            releaseLayers();
+            stopWatchingFrames();
+            break;
+        case RESET:
+            mBehaviour.onReset(primary, secondary);
+            break;
+        case UPDATE:
+            if (LOG_FRAMES) {
+                Timber.d("update: progress=%s", mProgress);
+            }
+            if (mBehaviour instanceof KeyframeBehavior) {
+                applyKeyframes();
+            } else {
+                mBehaviour.onUpdate(mProgress, isReversing, primary, secondary);
+            }
+            break;
+        case ATTACH:
+            mBehaviour.onAttach(this);
+            break;
+        }
+        if (isFlat) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Compile the transforms described by a keyframe behaviour into a table
+     * for each direction, once per image view size
+     */
+    private void compileKeyframes() {
+        if (!(mBehaviour instanceof KeyframeBehavior)) {
+            return;
+        }
+        int width = primary.getMeasuredWidth();
+        int height = primary.getMeasuredHeight();
+        if (width == mKeyframeWidth && height == mKeyframeHeight) {
+            return;
+        }
+        KeyframeBehavior behavior = (KeyframeBehavior) mBehaviour;
+        SwapTransform primaryStart = new SwapTransform();
+        SwapTransform primaryEnd = new SwapTransform();
+        SwapTransform secondaryStart = new SwapTransform();
+        SwapTransform secondaryEnd = new SwapTransform();
+        for (int i = 0; i < mKeyframes.length; i++) {
+            primaryStart.reset();
+            primaryEnd.reset();
+            secondaryStart.reset();
+            secondaryEnd.reset();
+            behavior.onDescribeSwap(i == 1, width, height, primaryStart, primaryEnd, secondaryStart, secondaryEnd);
+            mKeyframes[i] = new KeyframeTable(primaryStart, primaryEnd, secondaryStart, secondaryEnd,
+                                              behavior.getKeyframeInterpolator());
+        }
+        Timber.d("keyframes compiled: %sx%s", width, height);
+        mKeyframeWidth = width;
+        mKeyframeHeight = height;
+    }
+
+    /**
+     * Transform the image views to the current progress from the compiled
+     * keyframe table
+     */
+    private void applyKeyframes() {
+        compileKeyframes();
+        float fraction = isReversing ? 1 - mProgress : mProgress;
+        mKeyframes[isReversing ? 1 : 0].apply(fraction, primary, secondary);
+    }
+
+    /**
+     * Promote the image views to the layer type requested by the behaviour so
+     * translate only frames recomposite the layer instead of redrawing
+     */
+    private void promoteLayers() {
+        int layerType = LAYER_TYPE_NONE;
+        if (mBehaviour instanceof LayeredBehavior) {
+            layerType = ((LayeredBehavior) mBehaviour).getSwapLayerType();
+        }
+        if (isFlat || mQuality != SwapQualityPolicy.QUALITY_FULL
+                || layerType == LAYER_TYPE_HARDWARE && !isHardwareAccelerated()) {
+            layerType = LAYER_TYPE_NONE;
+        }
+        isLayerActive = layerType != LAYER_TYPE_NONE;
+        wasLayerUsed = isLayerActive;
+        if (isLayerActive) {
+            Timber.d("promote layers: type=%s", layerType);
+            primary.setLayerType(layerType, null);
+            secondary.setLayerType(layerType, null);
+        }
+    }
+
+    /**
+     * Drop the layers promoted for a swap
+     */
+    private void releaseLayers() {
+        if (isLayerActive) {
+            primary.setLayerType(LAYER_TYPE_NONE, null);
+            secondary.setLayerType(LAYER_TYPE_NONE, null);
+            isLayerActive = false;
+        }
+    }
+
+    /**
+     * Get if the image views are currently promoted to a layer
+     *
+     * @return true while a swap is drawing from layers
+     */
+    public boolean isSwapLayerActive() {
+        return isLayerActive;
+    }
+
+    /**
+     * Get if the last swap started drew the image views from a layer
+     *
+     * @return true if the layer was used
+     */
+    public boolean wasSwapLayerUsed() {
+        return wasLayerUsed;
+    }
+
+    /**
+     * Set the ordered list of drawables used for selecting next and previous
+     *
+     * @param index     the position to reset to
+     * @param drawables the list of drawables use
+     */
+    public void setDrawables(int index, @DrawableRes int... drawables) {
+        detachAdapter();
+        mNavigator.setAll(index, drawables);
+        mSources = null;
+        setCurrentIndex(index);
+    }
+
+    /**
+     * Set the ordered list of drawables from boxed ids, null ids are read as
+     * 0 and draw nothing
+     *
+     * @param index     the position to reset to
+     * @param drawables the list of drawables use
+     * @deprecated use {@link #setDrawables(int, int...)}, boxed ids cost an
+     * allocation per drawable
+     */
+    @Deprecated
+    public void setDrawables(int index, @DrawableRes Integer[] drawables) {
+        int[] ids = new int[drawables.length];
+        for (int i = 0; i < drawables.length; i++) {
+            ids[i] = drawables[i] == null ? 0 : drawables[i];
+        }
+        setDrawables(index, ids);
+    }
+
+    /**
+     * Set the ordered list of image sources used for selecting next and
+     * previous, sources other than resources are decoded through the same
+     * cache and async path as drawables
+     *
+     * @param index   the position to reset to
+     * @param sources the list of image sources to use
+     */
+    public void setImageSources(int index, @NonNull ImageSource... sources) {
+        int[] drawables = new int[sources.length];
+        boolean isResources = true;
+        for (int i = 0; i < sources.length; i++) {
+            drawables[i] = sources[i].getResourceId();
+            isResources &= drawables[i] != 0;
+        }
+        detachAdapter();
+        mNavigator.setAll(index, drawables);
+        mSources = null;
+        if (!isResources) {
+            mSources = new ArrayList<>(sources.length);
+            Collections.addAll(mSources, sources);
+        }
+        setCurrentIndex(index);
+    }
+
+    /**
+     * Set the adapter supplying the images by position in place of a sequence
+     * set up front. Only the sources near the current index are looked up and
+     * kept, and ranged changes notified by the adapter keep the current image
+     * in place.
+     *
+     * @param index   the position to reset to
+     * @param adapter the adapter or null to clear the images
+     */
+    public void setAdapter(int index, @Nullable SwappableImageAdapter adapter) {
+        detachAdapter();
+        mSources = null;
+        if (adapter == null) {
+            mNavigator.setAll(index);
+        } else {
+            mAdapter = adapter;
+            mWindow = new SourceWindow(Math.max(2, mSlots.length));
+            adapter.registerObserver(mAdapterObserver);
+            mNavigator.setVirtual(index, adapter.getCount());
+        }
+        setCurrentIndex(index);
+    }
+
+    /**
+     * Get the adapter supplying the images
+     *
+     * @return the adapter or null if a sequence is set
+     */
+    @Nullable
+    public SwappableImageAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Stop observing the adapter before a sequence replaces it
+     */
+    private void detachAdapter() {
+        if (mAdapter != null) {
+            mAdapter.unregisterObserver(mAdapterObserver);
+            mAdapter = null;
+            mWindow = null;
+        }
+    }
+
+    /**
+     * Follows the changes of the adapter, moving the current and target
+     * indices with their images
+     */
+    private final SwappableImageAdapter.Observer mAdapterObserver = new SwappableImageAdapter.Observer() {
+        @Override
+        public void onChanged() {
+            mWindow.clear();
+            mNavigator.setVirtual(getCurrentIndex(), mAdapter.getCount());
+            if (targetIndex >= 0) {
+                targetIndex = mNavigator.getIndex(targetIndex);
+            }
+            onAdapterChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mWindow.onChanged(positionStart, itemCount);
+            onAdapterChanged();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mWindow.onMoved(positionStart);
+            mNavigator.insertRange(positionStart, itemCount);
+            if (targetIndex >= 0) {
+                targetIndex = SwapNavigator.shiftInserted(targetIndex, positionStart, itemCount);
+            }
+            onAdapterChanged();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mWindow.onMoved(positionStart);
+            mNavigator.removeRange(positionStart, itemCount);
+            if (targetIndex >= 0) {
+                targetIndex = SwapNavigator.shiftRemoved(targetIndex, positionStart, itemCount,
+                                                         mNavigator.size());
+            }
+            onAdapterChanged();
+        }
+    };
+
+    /**
+     * Rebind the current image if its source changed and refill the slots,
+     * or leave it to the end of the swap in progress
+     */
+    private void onAdapterChanged() {
+        Timber.d("adapter changed: %s", mNavigator);
+        if (!isSwapping()) {
+            setCurrentIndex(getCurrentIndex());
+        }
+    }
+
+    /**
+     * Get the sequence of drawable resource ids used in swapping, images from
+     * other sources are 0
+     *
+     * @return the read only sequence of drawables, empty with an adapter
+     * @see #getImageSource(int)
+     */
+    public IntSequence getDrawables() {
+        return mNavigator.getValues();
+    }
+
+    /**
+     * Get the source of the image at the index
+     *
+     * @param index the index of the image
+     * @return the image source or null if the index has no image
+     */
+    @Nullable
+    public ImageSource getImageSource(int index) {
+        if (index < 0 || index >= mNavigator.size()) {
+            return null;
+        }
+        if (mAdapter != null) {
+            return mWindow.get(mAdapter, index, getCurrentIndex());
+        }
+        if (mSources != null && mSources.get(index) != null) {
+            return mSources.get(index);
+        }
+        int resId = mNavigator.getValues().get(index);
+        return resId == 0 ? null : ImageSource.fromResource(resId);
+    }
+
+    /**
+     * Set the next image view drawable to show
+     *
+     * @param drawableRes the drawable to show
+     * @throws IllegalStateException if an adapter supplies the images
+     */
+    public void setNext(@DrawableRes int drawableRes) {
+        Timber.i("next: %s", drawableRes);
+        if (drawableRes != 0) {
+            insertSource(mNavigator.insertNext(drawableRes), null);
+            Timber.d("current: %s", mNavigator);
+        }
+    }
+
+    /**
+     * Set the next image source to show
+     *
+     * @param source the image source to show
+     * @throws IllegalStateException if an adapter supplies the images
+     */
+    public void setNext(@NonNull ImageSource source) {
+        Timber.i("next: %s", source);
+        insertSource(mNavigator.insertNext(source.getResourceId()), source);
+    }
+
+    /**
+     * Set the previous image view drawable to show from the current index
+     *
+     * @param drawableRes the drawable to set as previous
+     * @throws IllegalStateException if an adapter supplies the images
+     */
+    public void setPrevious(@DrawableRes int drawableRes) {
+        Timber.i("previous: %s", drawableRes);
+        if (drawableRes != 0) {
+            insertSource(mNavigator.insertPrevious(drawableRes), null);
+            Timber.d("current: %s", mNavigator);
+        }
+    }
+
+    /**
+     * Set the previous image source to show from the current index
+     *
+     * @param source the image source to set as previous
+     * @throws IllegalStateException if an adapter supplies the images
+     */
+    public void setPrevious(@NonNull ImageSource source) {
+        Timber.i("previous: %s", source);
+        insertSource(mNavigator.insertPrevious(source.getResourceId()), source);
+    }
+
+    /**
+     * Keep the sources list in step with the drawables once an image other
+     * than a resource was added
+     *
+     * @param position the index the image was inserted at
+     * @param source   the image source or null for a drawable resource
+     */
+    private void insertSource(int position, @Nullable ImageSource source) {
+        boolean isResource = source == null || source.getResourceId() != 0;
+        if (!isResource && mSources == null) {
+            mSources = new ArrayList<>(Collections.<ImageSource>nCopies(mNavigator.size() - 1, null));
+        }
+        if (mSources != null) {
+            mSources.add(position, isResource ? null : source);
+        }
+    }
+
+    /**
+     * Set if swapping should loop over list of drawables
+     *
+     * @param loop true to wrap around end of list
+     */
+    public void setLooping(boolean loop) {
+        mNavigator.setLooping(loop);
+    }
+
+    /**
+     * Get if swapping should loop over list of drawables
+     *
+     * @return true if the looping is turned on
+     */
+    public boolean isLooping() {
+        return mNavigator.isLooping();
+    }
+
+    /**
+     * Get the current index of images
+     *
+     * @return the current displayed image index
+     */
+    public int getCurrentIndex() {
+        return mNavigator.getCurrentIndex();
+    }
+
+    /**
+     * Set the current image to be displayed by index
+     *
+     * @param index the drawable index
+     */
+    public void setCurrentIndex(int index) {
+        mNavigator.setCurrentIndex(index);
+        promoteSlot();
+        dispatch(MESSAGE.RESET);
+        prefetchThumbnails();
+        postRefillSlots();
+    }
+
+    /**
+     * Get the index of the next drawable
+     *
+     * @return the currentIndex + 1 or wrap around max if looping
+     */
+    public int getNextIndex() {
+        int nextIndex = mNavigator.getNextIndex();
+        Timber.d("next: %s, current: %s, looping: %s", nextIndex, getCurrentIndex(), isLooping());
+        return nextIndex;
+    }
+
+    /**
+     * Get the index of the previous drawable
+     *
+     * @return the currentIndex - 1 or wrap around min if looping
+     */
+    public int getPreviousIndex() {
+        int prevIndex = mNavigator.getPreviousIndex();
+        Timber.d("previous: %s, current: %s, looping: %s", prevIndex, getCurrentIndex(), isLooping());
+        return prevIndex;
+    }
+
+    /**
+     * Start the act of showing the next drawable. Calls made while a swap is in
+     * progress are queued and coalesced into a single swap once it ends.
+     *
+     * @param force true to start now, cancelling the swap in progress and dropping the queue
+     */
+    public void showNext(boolean force) {
+        Timber.i("show next: force=%s", force);
+        showSteps(1, force);
+    }
+
+    /**
+     * Start the reverse action of showing the previous drawable. Calls made
+     * while a swap is in progress are queued and coalesced into a single swap
+     * once it ends.
+     *
+     * @param force true to start now, cancelling the swap in progress and dropping the queue
+     */
+    public void showPrevious(boolean force) {
+        Timber.i("show previous: force=%s", force);
+        showSteps(-1, force);
+    }
+
+    /**
+     * Swap by a number of steps or queue them behind the swap in progress
+     *
+     * @param steps the steps to move, negative to move to previous drawables
+     * @param force true to start now instead of queueing
+     */
+    private void showSteps(int steps, boolean force) {
+        if (force || !isSwapping()) {
+            mQueuedSteps = 0;
+            jump(steps);
+        } else {
+            mQueuedSteps += steps;
+            Timber.d("queued steps: %s", mQueuedSteps);
+        }
+    }
+
+    /**
+     * Swap straight to the drawable a number of steps away, skipping those in
+     * between
+     *
+     * @param steps the steps to move, negative to move to previous drawables
+     */
+    private void jump(int steps) {
+        int index = mNavigator.getIndex(getCurrentIndex() + steps);
+        if (steps != 0 && index != getCurrentIndex()) {
+            swap(steps < 0, index);
+        }
+    }
+
+    /**
+     * Start a single swap covering the steps queued during the last swap
+     */
+    private void runQueuedSwaps() {
+        int steps = mQueuedSteps;
+        mQueuedSteps = 0;
+        if (steps != 0 && !isSwapping()) {
+            jump(steps);
+        }
+    }
+
+    /**
+     * Get the net number of steps queued behind the swap in progress, with
+     * calls in opposite directions cancelling each other out
+     *
+     * @return the queued steps, positive towards next and negative towards
+     * previous drawables
+     */
+    public int getQueuedSteps() {
+        return mQueuedSteps;
+    }
+
+    /**
+     * Drop the steps queued behind the swap in progress
+     */
+    public void clearQueuedSteps() {
+        mQueuedSteps = 0;
+    }
+
+    /**
+     * Get the index being swapped to, which may be more than one step away
+     * when queued swaps were coalesced. The view makes it the current index
+     * once the swap ends.
+     *
+     * @return the target index or the current index if not swapping
+     */
+    public int getTargetIndex() {
+        return targetIndex >= 0 ? targetIndex : getCurrentIndex();
+    }
+
+    /**
+     * Get if a swap is waiting on decoding or animating
+     *
+     * @return true if a swap is in progress
+     */
+    public boolean isSwapping() {
+        return mPendingSwap != null || animator.isStarted() || isDriven || isScrubbing
+                || settleAnimator.isStarted();
+    }
+
+    /**
+     * Set if horizontal drags should scrub through swaps, following the finger
+     * and settling with the fling velocity on release
+     *
+     * @param enabled true to handle swipe gestures
+     */
+    public void setSwipeEnabled(boolean enabled) {
+        mSwipeHandler = enabled ? new SwipeGestureHandler(this) : null;
+    }
+
+    /**
+     * Get if horizontal drags scrub through swaps
+     *
+     * @return true if swipe gestures are handled
+     */
+    public boolean isSwipeEnabled() {
+        return mSwipeHandler != null;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mSwipeHandler != null && mSwipeHandler.onTouchEvent(event)) {
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    /**
+     * Warm the image cache with both neighbours of the current drawable so a
+     * scrub in either direction can bind without decoding
+     */
+    void prefetchNeighbours() {
+        if (hasLaidOut) {
+            mLoader.prefetch(getImageKey(getNextIndex()), getImageKey(getPreviousIndex()));
+        }
+    }
+
+    /**
+     * Set if swaps to an image that is not decoded yet should start at once
+     * with a placeholder, a cached thumbnail or else the placeholder colour,
+     * in place of the image until its decode finishes. Thumbnails of both
+     * neighbours are prefetched while on.
+     *
+     * @param progressive true to show placeholders instead of waiting
+     */
+    public void setProgressive(boolean progressive) {
+        isProgressive = progressive;
+        prefetchThumbnails();
+    }
+
+    /**
+     * Get if swaps start with placeholders instead of waiting on decoding
+     *
+     * @return true if progressive display is on
+     */
+    public boolean isProgressive() {
+        return isProgressive;
+    }
+
+    /**
+     * Set the colour filling the placeholder of an image with no cached
+     * thumbnail
+     *
+     * @param color the placeholder colour
+     */
+    public void setPlaceholderColor(int color) {
+        mPlaceholderColor = color;
+    }
+
+    public int getPlaceholderColor() {
+        return mPlaceholderColor;
+    }
+
+    /**
+     * Set the listener called when a decoded image replaces its placeholder
+     *
+     * @param listener the upgrade listener or null to remove it
+     */
+    public void setOnImageUpgradeListener(@Nullable OnImageUpgradeListener listener) {
+        mUpgradeListener = listener;
+    }
+
+    /**
+     * Get the number of placeholders shown, including those replaced before
+     * their image was decoded
+     *
+     * @return the placeholder count
+     */
+    public int getPlaceholderCount() {
+        return placeholderCount;
+    }
+
+    /**
+     * Warm the image cache with thumbnails of both neighbours of the current
+     * drawable for progressive swaps to show
+     */
+    private void prefetchThumbnails() {
+        if (isProgressive && hasLaidOut) {
+            mLoader.prefetch(getThumbnailKey(getNextIndex()), getThumbnailKey(getPreviousIndex()));
+        }
+    }
+
+    /**
+     * Start a swap driven by touch instead of the animator
+     *
+     * @param reverse true if scrubbing towards the previous drawable
+     * @return true if there was a drawable to swap to in that direction
+     */
+    boolean startScrub(boolean reverse) {
+        if (isSwapping()) {
+            return false;
+        }
+        int index = reverse ? getPreviousIndex() : getNextIndex();
+        if (index == getCurrentIndex()) {
+            return false;
+        }
+        isScrubbing = true;
+        isReversing = reverse;
+        targetIndex = index;
+        selectSecondary(index);
+        bindImage(secondary, index);
+        mProgress = reverse ? 1 : 0;
+        dispatch(MESSAGE.START);
+        return true;
+    }
+
+    /**
+     * Move a touch driven swap to the fraction of the swap completed
+     *
+     * @param fraction the distance covered between 0..1
+     */
+    void scrub(float fraction) {
+        mProgress = isReversing ? 1 - fraction : fraction;
+        dispatch(MESSAGE.UPDATE);
+    }
+
+    /**
+     * Finish a touch driven swap by animating from the fraction reached to the
+     * end or back to the start, continuing at the release velocity
+     *
+     * @param fraction the distance covered between 0..1
+     * @param commit   true to complete the swap, false to cancel it
+     * @param velocity the release speed in fractions per second, positive
+     *                 towards completing the swap and negative towards
+     *                 cancelling it
+     */
+    void settleScrub(float fraction, boolean commit, float velocity) {
+        isScrubbing = false;
+        shouldSettleCommit = commit;
+        float target = commit ? 1 : 0;
+        long duration = mSwapDuration;
+        // a release moving away from the target does not speed up the settle
+        float towards = commit ? velocity : -velocity;
+        if (towards > 0) {
+            duration = Math.min(duration, (long) (Math.abs(target - fraction) / towards * 1000));
+        }
+        mSettleFrom = fraction;
+        mSettleTo = target;
+        settleAnimator.setDuration(duration);
+        settleAnimator.start();
+    }
+
+    /**
+     * @return the duration of the last settle in milliseconds
+     */
+    long getSettleDuration() {
+        return settleAnimator.getDuration();
+    }
+
+    /**
+     * Decode the current and target drawables then start the swap animation
+     * once both are ready to be drawn. In progressive mode the swap starts at
+     * once if the current drawable is cached, with a placeholder for the
+     * target until it is decoded.
+     *
+     * @param reverse true if swapping to the previous drawable
+     * @param index   the index of the drawable to swap in
+     */
+    private void swap(final boolean reverse, int index) {
+        cancelPendingSwap();
+        cancelAnimation();
+        reportMetrics(true);
+        if (mMetricsListener != null) {
+            mMetrics = new SwapMetrics(reverse, getCurrentIndex(), index, System.nanoTime());
+        }
+        targetIndex = index;
+        // the current drawable is rebound at full size if it was downsampled
+        isDownsampled = false;
+        selectSecondary(index);
+        final ImageCache.Key primaryKey = getImageKey(getCurrentIndex());
+        final ImageCache.Key secondaryKey = getImageKey(index);
+        if (isProgressive && mLoader.getCache().contains(primaryKey)) {
+            isReversing = reverse;
+            bindImage(primary, getCurrentIndex());
+            bindImage(secondary, index);
+            if (mMetrics != null) {
+                mMetrics.onDecoded(System.nanoTime());
+            }
+            startAnimation(reverse);
+            return;
+        }
+        primary.setTag(R.id.swappable_image_request, primaryKey);
+        secondary.setTag(R.id.swappable_image_request, secondaryKey);
+        ImageLoader.Request request = mLoader.load(new ImageLoader.Callback() {
+            @Override
+            public void onLoaded(Drawable... drawables) {
+                mPendingSwap = null;
+                isReversing = reverse;
+                setImage(primary, primaryKey, drawables[0]);
+                setImage(secondary, secondaryKey, drawables[1]);
+                if (mMetrics != null) {
+                    mMetrics.onDecoded(System.nanoTime());
+                }
+                startAnimation(reverse);
+            }
+        }, primaryKey, secondaryKey);
+        // delivered in place if the executors run synchronously
+        if (!request.isDelivered()) {
+            mPendingSwap = request;
+        }
+    }
+
+    /**
+     * Stop a swap that is still waiting on decoding from starting
+     */
+    private void cancelPendingSwap() {
+        if (mPendingSwap != null) {
+            mPendingSwap.cancel();
+            mPendingSwap = null;
+            targetIndex = -1;
+            mQueuedSteps = 0;
+            reportMetrics(true);
+            primary.setTag(R.id.swappable_image_request, primary.getTag(R.id.swappable_image_bound));
+            secondary.setTag(R.id.swappable_image_request, secondary.getTag(R.id.swappable_image_bound));
+        }
+    }
+
+    /**
+     * Get the cache key of the drawable at the index, sized to the bucketed
+     * image bounds once they are known or half of them while downsampled
+     *
+     * @param index the index of the drawable
+     * @return the image key
+     */
+    private ImageCache.Key getImageKey(int index) {
+        ImageSource source = getImageSource(index);
+        if (isDownsampled) {
+            return new ImageCache.Key(source, ImageLoader.getSizeBucket(mImageWidth / 2),
+                                      ImageLoader.getSizeBucket(mImageHeight / 2));
+        }
+        return new ImageCache.Key(source, mImageWidth, mImageHeight);
+    }
+
+    /**
+     * Get the cache key of the thumbnail of the drawable at the index
+     *
+     * @param index the index of the drawable
+     * @return the thumbnail key
+     */
+    private ImageCache.Key getThumbnailKey(int index) {
+        return new ImageCache.Key(getImageSource(index), ImageLoader.SIZE_BUCKET, ImageLoader.SIZE_BUCKET);
+    }
+
+    /**
+     * Bind the drawable at the index to the image view, decoding off the main
+     * thread if it is not already bound or being bound. Binding waits for the
+     * first layout so the decode can be sized to the view, and is redone only
+     * when the size bucket changes. In progressive mode a placeholder is shown
+     * until the decode finishes, as is a decode of another size handed over
+     * from the view the state was restored from.
+     *
+     * @param target the image view to bind to
+     * @param index  the index of the drawable
+     */
+    public void bindImage(final ImageView target, int index) {
+        if (!hasLaidOut) {
+            return;
+        }
+        final ImageCache.Key key = getImageKey(index);
+        if (key.equals(target.getTag(R.id.swappable_image_request))) {
+            return;
+        }
+        target.setTag(R.id.swappable_image_request, key);
+        if (key.source == null) {
+            setImage(target, key, null);
+            return;
+        }
+        Drawable cached = mLoader.getCache().contains(key) ? mLoader.getCache().acquire(key) : null;
+        if (cached != null) {
+            setImage(target, key, cached);
+            return;
+        }
+        ImageCache.Key restoredKey = mRestored != null ? mRestored.find(mLoader.getCache(), key.source) : null;
+        Drawable restored = restoredKey != null ? mLoader.getCache().acquire(restoredKey) : null;
+        final boolean isPlaceholder = isProgressive || restored != null;
+        if (isPlaceholder) {
+            if (restored != null) {
+                Timber.d("placeholder: restored=%s", restoredKey);
+                setImage(target, restoredKey, new PlaceholderDrawable(restored, true));
+            } else {
+                showPlaceholder(target, index);
+            }
+            target.setTag(R.id.swappable_image_request, key);
+            if (mUpgrading.contains(key)) {
+                return;
+            }
+            mUpgrading.add(key);
+        }
+        mLoader.load(new ImageLoader.Callback() {
+            @Override
+            public void onLoaded(Drawable... drawables) {
+                if (isPlaceholder) {
+                    mUpgrading.remove(key);
+                    upgradeImages(key, drawables[0]);
+                } else if (key.equals(target.getTag(R.id.swappable_image_request))) {
+                    setImage(target, key, drawables[0]);
+                } else if (drawables[0] != null) {
+                    mLoader.getCache().release(key);
+                }
+            }
+        }, key);
+    }
+
+    /**
+     * Show the cached thumbnail of the drawable at the index, or a fill of the
+     * placeholder colour if it has none
+     *
+     * @param target the image view to show the placeholder in
+     * @param index  the index of the drawable
+     */
+    private void showPlaceholder(ImageView target, int index) {
+        ImageCache.Key key = getThumbnailKey(index);
+        Drawable thumbnail = mLoader.getCache().contains(key) ? mLoader.getCache().acquire(key) : null;
+        Drawable drawable = thumbnail != null ? thumbnail : new ColorDrawable(mPlaceholderColor);
+        Timber.d("placeholder: thumbnail=%s", thumbnail != null);
+        placeholderCount++;
+        setImage(target, thumbnail != null ? key : null, new PlaceholderDrawable(drawable, thumbnail != null));
+    }
+
+    /**
+     * Show a decoded drawable in place of the placeholders waiting on it,
+     * several slots can be waiting once a swap ends before the decode
+     *
+     * @param key      the key the drawable was decoded from
+     * @param drawable the decoded drawable or null if it could not be decoded
+     */
+    private void upgradeImages(ImageCache.Key key, @Nullable Drawable drawable) {
+        boolean isBound = false;
+        for (ImageView slot : mSlots) {
+            if (key.equals(slot.getTag(R.id.swappable_image_request))) {
+                boolean isShared = isBound && drawable != null;
+                upgradeImage(slot, key, isShared ? mLoader.getCache().acquire(key) : drawable);
+                isBound = true;
+            }
+        }
+        if (!isBound && drawable != null) {
+            mLoader.getCache().release(key);
+        }
+    }
+
+    /**
+     * Replace the placeholder of the image view with the decoded drawable
+     * without setting a new drawable on it, so the view is only redrawn
+     *
+     * @param target   the image view showing the placeholder
+     * @param key      the key the drawable was decoded from
+     * @param drawable the decoded drawable
+     */
+    private void upgradeImage(ImageView target, ImageCache.Key key, @Nullable Drawable drawable) {
+        Drawable current = target.getDrawable();
+        if (drawable == null || !(current instanceof PlaceholderDrawable)
+                || ((PlaceholderDrawable) current).isUpgraded()) {
+            setImage(target, key, drawable);
+            return;
+        }
+        PlaceholderDrawable placeholder = (PlaceholderDrawable) current;
+        Object boundKey = target.getTag(R.id.swappable_image_bound);
+        bindCount++;
+        target.setTag(R.id.swappable_image_bound, key);
+        placeholder.upgrade(drawable);
+        releaseReplaced(boundKey);
+        if (isFlat) {
+            if (target == primary) {
+                updateIntrinsicSize();
+            }
+            invalidate();
+        }
+        if (mUpgradeListener != null) {
+            mUpgradeListener.onImageUpgraded(target, placeholder.isThumbnail(),
+                                             System.nanoTime() - placeholder.getShownNanos());
+        }
+    }
+
+    /**
+     * Get the number of times a drawable was set on an image view, bindings
+     * of the image already displayed are skipped and not counted
+     *
+     * @return the bind count
+     */
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    /**
+     * Clear every slot and release the cache references held for them
+     */
+    private void releaseSlots() {
+        for (ImageView slot : mSlots) {
+            releaseImage(slot);
+        }
+    }
+
+    /**
+     * Clear the image view and release the cache reference held for it
+     *
+     * @param target the image view to clear
+     */
+    private void releaseImage(ImageView target) {
+        setImage(target, null, null);
+    }
+
+    /**
+     * Set an already decoded drawable on the image view, taking over its cache
+     * reference and releasing the one held for the drawable replaced
+     *
+     * @param target   the image view to set
+     * @param key      the key the drawable was decoded from
+     * @param drawable the decoded drawable
+     */
+    private void setImage(ImageView target, ImageCache.Key key, Drawable drawable) {
+        Object boundKey = target.getTag(R.id.swappable_image_bound);
+        target.setTag(R.id.swappable_image_request, key);
+        if (boundKey != null) {
+            if (drawable != null && boundKey.equals(key)) {
+                mLoader.getCache().release((ImageCache.Key) boundKey);
+                return;
+            }
+        } else if (drawable == null && target.getDrawable() == null) {
+            return;
+        }
+        bindCount++;
+        target.setTag(R.id.swappable_image_bound, drawable != null ? key : null);
+        target.setImageDrawable(drawable);
+        releaseReplaced(boundKey);
+        if (isFlat) {
+            if (target == primary) {
+                updateIntrinsicSize();
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * Release the cache reference held for a drawable no longer shown,
+     * evicting it while downsampled. Only called once the drawable is
+     * replaced so an eviction never pools a drawn bitmap.
+     *
+     * @param boundKey the key bound to the image view before, or null
+     */
+    private void releaseReplaced(@Nullable Object boundKey) {
+        if (boundKey == null) {
+            return;
+        }
+        mLoader.getCache().release((ImageCache.Key) boundKey);
+        if (isDownsampled) {
+            mLoader.getCache().evict((ImageCache.Key) boundKey, mTrimLevel);
+        }
+    }
+
+    /**
+     * The swappable image view behaviour
+     */
+    public interface Behavior {
+        /**
+         * Called when behaviour is attached to {@link SwappableImageView}
+         *
+         * @param view the swappable image view attached
+         */
+        void onAttach(SwappableImageView view);
+
+        /**
+         * Reset the state of the swap image views. Should be called when layout changes
+         * occur.
+         *
+         * @param primary   the current image view
+         * @param secondary the image view used for swapping
+         */
+        void onReset(ImageView primary, ImageView secondary);
+
+        /**
+         * Called at the start of the swap
+         *
+         * @param isReverse if the swap is happening in reverse
+         * @param primary   the image view currently displayed
          * @param secondary the image view to swap in
          */
         void onStart(boolean isReverse, ImageView primary, ImageView secondary);
 
         /**
-         * Update the swapping process with progress
+         * Update the swapping process with progress. Called every animation
+         * frame so implementations should avoid allocating.
          *
          * @param progress  the current progress of the swap as float between 0..1
          * @param isReverse if true then the swap is playing from completion to onStart
@@ -395,7 +2239,11 @@ public class SwappableImageView extends RelativeLayout {
         void onUpdate(float progress, boolean isReverse, ImageView primary, ImageView secondary);
 
         /**
-         * Called when the swapping is completed
+         * Called when the swapping is completed. The view then makes
+         * {@link #getTargetIndex} the current index, promoting the image view
+         * swapped in to primary and resetting, so behaviours need not set it
+         * and should not keep the image views passed here. Setting it here
+         * as well has no further effect.
          *
          * @param isReverse if the swap just happened in reverse as with
          *                  {@link #showPrevious}
@@ -413,6 +2261,153 @@ public class SwappableImageView extends RelativeLayout {
         void onCancel(ImageView primary, ImageView secondary);
     }
 
+    /**
+     * Swappable image view behaviour that promotes the image views to a layer
+     * for the duration of each swap
+     */
+    public interface LayeredBehavior extends Behavior {
+        /**
+         * Get the layer type to draw the image views with while swapping. A
+         * hardware layer is only used if the view is hardware accelerated.
+         *
+         * @return one of {@link View#LAYER_TYPE_NONE},
+         * {@link View#LAYER_TYPE_SOFTWARE} or {@link View#LAYER_TYPE_HARDWARE}
+         */
+        int getSwapLayerType();
+    }
+
+    /**
+     * Swappable image view behaviour that describes the transforms of the
+     * image views at the start and end of a swap instead of updating them
+     * every frame. The view compiles the transforms into a keyframe table
+     * once per size and {@link #onUpdate} is not called while swapping.
+     */
+    public interface KeyframeBehavior extends Behavior {
+        /**
+         * Describe the transforms of a swap. Called when the image views
+         * change size, each transform starts as the identity.
+         *
+         * @param isReverse      if the swap is happening in reverse
+         * @param width          the width of the image views
+         * @param height         the height of the image views
+         * @param primaryStart   the transform of the image view currently displayed at the start
+         * @param primaryEnd     the transform of the image view currently displayed at the end
+         * @param secondaryStart the transform of the image view to swap in at the start
+         * @param secondaryEnd   the transform of the image view to swap in at the end
+         */
+        void onDescribeSwap(boolean isReverse, int width, int height,
+                            SwapTransform primaryStart, SwapTransform primaryEnd,
+                            SwapTransform secondaryStart, SwapTransform secondaryEnd);
+
+        /**
+         * Get the interpolator applied between the start and end transforms,
+         * on top of the interpolation of the swap progress
+         *
+         * @return the interpolator or null for linear
+         */
+        @Nullable
+        TimeInterpolator getKeyframeInterpolator();
+    }
+
+    /**
+     * Receives the metrics of each swap once it ends or is cancelled
+     */
+    public interface OnSwapMetricsListener {
+        /**
+         * Called on the main thread after a swap ends or is cancelled
+         *
+         * @param metrics the timings of the swap
+         */
+        void onSwapMetrics(SwapMetrics metrics);
+    }
+
+    /**
+     * Receives the placeholders replaced by their decoded image in
+     * progressive mode
+     */
+    public interface OnImageUpgradeListener {
+        /**
+         * Called on the main thread when a decoded image replaces the
+         * placeholder shown in its place
+         *
+         * @param target      the image view upgraded
+         * @param isThumbnail true if a thumbnail was shown, false for a colour fill
+         * @param shownNanos  the time the placeholder was shown for
+         */
+        void onImageUpgraded(ImageView target, boolean isThumbnail, long shownNanos);
+    }
+
+    /**
+     * The position in and sequence of drawables, with the token of the decodes
+     * handed over to the view restored from this state. Sequences taking over
+     * {@link #MAX_SAVED_BYTES} of the parcel are not saved, only the index, so
+     * saving never nears the binder transaction limit. Image sources read from
+     * file descriptors are not restored.
+     */
+    static class SavedState extends BaseSavedState {
+        static final int MAX_SAVED_BYTES = 50 * 1024;
+
+        int currentIndex;
+        boolean isLooping;
+        int[] drawables;
+        String[] sources;
+        long handoffToken;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            currentIndex = in.readInt();
+            isLooping = in.readInt() != 0;
+            drawables = in.createIntArray();
+            sources = in.createStringArray();
+            handoffToken = in.readLong();
+        }
+
+        /**
+         * Estimate the bytes the sequence takes in a parcel, strings are
+         * written as UTF-16 padded to 4 bytes
+         *
+         * @param drawables the drawable resource ids
+         * @param sources   the saved strings of the sources or null
+         * @return the parcel size in bytes
+         */
+        static long getParcelSize(int[] drawables, @Nullable String[] sources) {
+            long size = 4 + 4L * drawables.length;
+            if (sources != null) {
+                size += 4;
+                for (String source : sources) {
+                    size += 4 + (source == null ? 0 : ((source.length() + 1) * 2 + 3) / 4 * 4);
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(currentIndex);
+            out.writeInt(isLooping ? 1 : 0);
+            out.writeIntArray(drawables);
+            out.writeStringArray(sources);
+            out.writeLong(handoffToken);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     /**
      * Swap behaviour callback message
      */
@@ -0,0 +1,125 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+
+/**
+ * Turns horizontal drags on a {@link SwappableImageView} into swap progress.
+ * Dragging left scrubs towards the next drawable and dragging right towards
+ * the previous one, releasing settles the swap using the fling velocity.
+ */
+class SwipeGestureHandler {
+
+    private final SwappableImageView mView;
+    private final int mTouchSlop;
+    private final int mMinFlingVelocity;
+    private final int mMaxFlingVelocity;
+    private VelocityTracker mVelocityTracker;
+    private float mDownX;
+    private float mFraction = 0;
+    private boolean isDragging = false;
+    private boolean isReverse = false;
+
+    SwipeGestureHandler(SwappableImageView view) {
+        mView = view;
+        ViewConfiguration configuration = ViewConfiguration.get(view.getContext());
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+    }
+
+    /**
+     * Handle a touch event dispatched to the view
+     *
+     * @param event the touch event
+     * @return true if the event was consumed
+     */
+    boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+        case MotionEvent.ACTION_DOWN:
+            if (mView.isSwapping()) {
+                return false;
+            }
+            mDownX = event.getX();
+            mVelocityTracker = VelocityTracker.obtain();
+            mVelocityTracker.addMovement(event);
+            mView.prefetchNeighbours();
+            return true;
+        case MotionEvent.ACTION_MOVE:
+            if (mVelocityTracker == null) {
+                return false;
+            }
+            mVelocityTracker.addMovement(event);
+            float dx = event.getX() - mDownX;
+            if (!isDragging && Math.abs(dx) > mTouchSlop) {
+                isReverse = dx > 0;
+                isDragging = mView.startScrub(isReverse);
+                if (isDragging) {
+                    mDownX += isReverse ? mTouchSlop : -mTouchSlop;
+                    ViewParent parent = mView.getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                }
+            }
+            if (isDragging) {
+                mFraction = getFraction(event.getX() - mDownX);
+                mView.scrub(mFraction);
+            }
+            return true;
+        case MotionEvent.ACTION_UP:
+            if (mVelocityTracker == null) {
+                return false;
+            }
+            if (isDragging) {
+                mVelocityTracker.addMovement(event);
+                mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                float velocity = mVelocityTracker.getXVelocity();
+                float towards = isReverse ? velocity : -velocity;
+                boolean commit = Math.abs(velocity) > mMinFlingVelocity ? towards > 0 : mFraction > 0.5f;
+                int width = mView.getWidth();
+                mView.settleScrub(mFraction, commit, width > 0 ? towards / width : 0);
+            } else {
+                mView.performClick();
+            }
+            reset();
+            return true;
+        case MotionEvent.ACTION_CANCEL:
+            if (isDragging) {
+                mView.settleScrub(mFraction, false, 0);
+            }
+            reset();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the swap fraction a horizontal drag distance covers
+     *
+     * @param dx the distance dragged from the start of the scrub
+     * @return the fraction between 0..1
+     */
+    private float getFraction(float dx) {
+        int width = mView.getWidth();
+        if (width <= 0) {
+            return 0;
+        }
+        float fraction = (isReverse ? dx : -dx) / width;
+        return Math.min(1, Math.max(0, fraction));
+    }
+
+    /**
+     * Clear the gesture state once the pointer is released
+     */
+    private void reset() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        isDragging = false;
+        mFraction = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Fixtures shared by the unit and instrumented tests
+ */
+final class TestHelper {
+
+    /**
+     * Runs commands in place, so loads are decoded and delivered before
+     * they return
+     */
+    static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private TestHelper() {
+    }
+
+    /**
+     * Mock a drawable the image cache can share
+     *
+     * @return a drawable with a constant state creating more mocks
+     */
+    static Drawable mockDrawable() {
+        Drawable drawable = mock(Drawable.class);
+        Drawable.ConstantState state = mock(Drawable.ConstantState.class);
+        when(state.newDrawable()).thenReturn(mock(Drawable.class));
+        when(drawable.getConstantState()).thenReturn(state);
+        return drawable;
+    }
+}
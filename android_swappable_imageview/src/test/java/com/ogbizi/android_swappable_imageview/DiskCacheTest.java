@@ -0,0 +1,198 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+public class DiskCacheTest {
+
+    private File directory;
+    private DiskCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("disk-cache", "");
+        assertTrue(directory.delete());
+        cache = new DiskCache(directory, 1, 30);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void putThenGet() throws IOException {
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", bytes(10, 1)));
+        assertArrayEquals(bytes(10, 1), read(cache.get("a")));
+        assertEquals(10, cache.getSize());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.put("b", bytes(10, 2));
+        cache.put("c", bytes(10, 3));
+        read(cache.get("a"));
+
+        cache.put("d", bytes(10, 4));
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertEquals(30, cache.getSize());
+        assertFalse(new File(directory, DiskCache.getFileName("b")).exists());
+    }
+
+    @Test
+    public void reopenRestoresEntriesAndOrder() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.put("b", bytes(10, 2));
+        cache.put("c", bytes(10, 3));
+        read(cache.get("a"));
+        cache.remove("c");
+        cache.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertEquals(2, cache.getEntryCount());
+        assertArrayEquals(bytes(10, 1), read(cache.get("a")));
+        assertFalse(cache.contains("c"));
+
+        cache.put("c", bytes(10, 3));
+        cache.put("d", bytes(10, 4));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("a"));
+    }
+
+    @Test
+    public void uncommittedEditIsDroppedOnReopen() throws IOException {
+        cache.put("a", bytes(10, 1));
+        DiskCache.Editor editor = cache.edit("a");
+        assertNotNull(editor);
+        assertNull(cache.edit("a"));
+        editor.getOutputStream().write(bytes(5, 9));
+        editor.getOutputStream().flush();
+        cache.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertArrayEquals(bytes(10, 1), read(cache.get("a")));
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            assertFalse(file.getName().endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    public void abortKeepsPreviousEntry() throws IOException {
+        cache.put("a", bytes(10, 1));
+        DiskCache.Editor editor = cache.edit("a");
+        editor.getOutputStream().write(bytes(5, 9));
+        editor.abort();
+        cache.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertArrayEquals(bytes(10, 1), read(cache.get("a")));
+    }
+
+    @Test
+    public void entriesWithMissingOrTruncatedFilesAreDropped() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.put("b", bytes(10, 2));
+        cache.close();
+        assertTrue(new File(directory, DiskCache.getFileName("a")).delete());
+        OutputStream out = new FileOutputStream(new File(directory, DiskCache.getFileName("b")));
+        out.write(1);
+        out.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void otherVersionClearsCache() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.close();
+
+        cache = new DiskCache(directory, 2, 30);
+        assertEquals(0, cache.getEntryCount());
+        assertFalse(new File(directory, DiskCache.getFileName("a")).exists());
+    }
+
+    @Test
+    public void corruptJournalClearsCache() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.close();
+        OutputStream out = new FileOutputStream(new File(directory, DiskCache.JOURNAL), true);
+        out.write("GARBAGE\n".getBytes("UTF-8"));
+        out.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void incompleteLastJournalLineIsIgnored() throws IOException {
+        cache.put("a", bytes(10, 1));
+        cache.put("b", bytes(10, 2));
+        cache.close();
+        File journal = new File(directory, DiskCache.JOURNAL);
+        OutputStream out = new FileOutputStream(journal, true);
+        out.write(("DIRTY " + DiskCache.getFileName("c") + "\nCLEAN " + DiskCache.getFileName("c")).getBytes("UTF-8"));
+        out.close();
+        out = new FileOutputStream(new File(directory, DiskCache.getFileName("c")));
+        out.write(bytes(10, 3));
+        out.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertEquals(2, cache.getEntryCount());
+        assertArrayEquals(bytes(10, 2), read(cache.get("b")));
+        assertFalse(cache.contains("c"));
+        assertFalse(new File(directory, DiskCache.getFileName("c")).exists());
+        cache.close();
+
+        cache = new DiskCache(directory, 1, 30);
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) value;
+        }
+        return bytes;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        assertNotNull(in);
+        try {
+            byte[] buffer = new byte[64];
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, 0, bytes, 0, length);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+}
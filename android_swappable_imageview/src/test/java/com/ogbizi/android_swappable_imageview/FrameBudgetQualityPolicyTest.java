@@ -0,0 +1,104 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBudgetQualityPolicyTest {
+
+    private static final long MS = 1000000;
+    private static final long FRAME = 16 * MS;
+
+    /**
+     * Play a swap of frames spaced by the gaps given, from a fake clock
+     *
+     * @return the quality reported by the last frame
+     */
+    private static int swap(SwapQualityPolicy policy, long... gaps) {
+        long now = 0;
+        int quality = policy.onFrame(now);
+        for (long gap : gaps) {
+            now += gap;
+            quality = policy.onFrame(now);
+        }
+        policy.onSwapEnd();
+        return quality;
+    }
+
+    @Test
+    public void healthyFramesKeepFullQuality() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(2, 2);
+        assertEquals(SwapQualityPolicy.QUALITY_FULL, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_FULL, swap(policy, FRAME, FRAME, 20 * MS, FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_FULL, policy.getQuality());
+    }
+
+    @Test
+    public void droppedFramesDegradeDuringTheSwap() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(2, 2);
+        policy.onSwapStart(FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, swap(policy, FRAME, 3 * FRAME, FRAME, 2 * FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, swap(policy, 2 * FRAME, 2 * FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, swap(policy, 2 * FRAME, 2 * FRAME));
+    }
+
+    @Test
+    public void firstFrameIntervalIsNotCounted() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(1, 1);
+        policy.onSwapStart(FRAME);
+        policy.onFrame(100 * MS);
+        assertEquals(SwapQualityPolicy.QUALITY_FULL, policy.onFrame(116 * MS));
+    }
+
+    @Test
+    public void recoversAfterHealthySwaps() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(1, 2);
+        policy.onSwapStart(FRAME);
+        swap(policy, 2 * FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.getQuality());
+
+        policy.onSwapStart(FRAME);
+        swap(policy, FRAME, FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.getQuality());
+        policy.onSwapStart(FRAME);
+        swap(policy, FRAME, 2 * FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.getQuality());
+
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, swap(policy, FRAME, FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.getQuality());
+    }
+
+    @Test
+    public void skippedSwapsDoNotCountAsHealthy() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(1, 2);
+        policy.onSwapStart(FRAME);
+        swap(policy, 2 * FRAME);
+        policy.onSwapStart(FRAME);
+        swap(policy, 2 * FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.getQuality());
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.onSwapStart(FRAME));
+            policy.onSwapEnd();
+            assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.getQuality());
+        }
+    }
+
+    @Test
+    public void failedProbeReturnsToMinimal() {
+        FrameBudgetQualityPolicy policy = new FrameBudgetQualityPolicy(2, 1);
+        policy.onSwapStart(FRAME);
+        swap(policy, 2 * FRAME, 2 * FRAME, 2 * FRAME, 2 * FRAME);
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.getQuality());
+
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, policy.onSwapStart(FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_REDUCED, swap(policy, FRAME, 2 * FRAME));
+        assertEquals(SwapQualityPolicy.QUALITY_MINIMAL, policy.getQuality());
+    }
+}
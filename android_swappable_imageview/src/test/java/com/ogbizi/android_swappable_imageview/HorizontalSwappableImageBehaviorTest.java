@@ -0,0 +1,65 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.content.Context;
+import android.widget.ImageView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class HorizontalSwappableImageBehaviorTest {
+
+    private static final int FRAMES = 60;
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private HorizontalSwappableImageBehavior behavior;
+    private ImageView primary;
+    private ImageView secondary;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        behavior = new HorizontalSwappableImageBehavior();
+        primary = new ImageView(context);
+        secondary = new ImageView(context);
+    }
+
+    @Test
+    public void onUpdateDoesNotAllocate() {
+        for (int i = 0; i < 1000; i++) {
+            swap(false);
+            swap(true);
+            allocatedBytes();
+        }
+        long before = allocatedBytes();
+        swap(false);
+        swap(true);
+        assertEquals(0, allocatedBytes() - before);
+    }
+
+    /**
+     * Run every frame of a full swap through the behaviour
+     *
+     * @param isReverse the direction of the swap
+     */
+    private void swap(boolean isReverse) {
+        for (int frame = 0; frame <= FRAMES; frame++) {
+            float progress = (float) frame / FRAMES;
+            behavior.onUpdate(isReverse ? 1 - progress : progress, isReverse, primary, secondary);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
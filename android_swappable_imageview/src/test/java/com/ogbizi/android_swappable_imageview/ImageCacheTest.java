@@ -0,0 +1,135 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.ogbizi.android_swappable_imageview.TestHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ImageCacheTest {
+
+    private static final long ENTRY_SIZE = 10;
+
+    private ImageCache cache;
+    private ImageCache.Key one = new ImageCache.Key(1, 0, 0);
+    private ImageCache.Key two = new ImageCache.Key(2, 0, 0);
+    private ImageCache.Key three = new ImageCache.Key(3, 0, 0);
+
+    @Before
+    public void setUp() {
+        cache = new ImageCache(2 * ENTRY_SIZE) {
+            @Override
+            protected long sizeOf(@NonNull Drawable drawable) {
+                return ENTRY_SIZE;
+            }
+        };
+    }
+
+    @Test
+    public void keyIncludesTargetSize() {
+        assertEquals(one, new ImageCache.Key(1, 0, 0));
+        assertNotEquals(one, new ImageCache.Key(1, 48, 48));
+    }
+
+    @Test
+    public void acquireCountsHitsAndMisses() {
+        assertNull(cache.acquire(one));
+        cache.put(one, mockDrawable());
+        assertNotNull(cache.acquire(one));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getRefCount(one));
+    }
+
+    @Test
+    public void referencedEntriesAreNotEvicted() {
+        cache.put(one, mockDrawable());
+        cache.put(two, mockDrawable());
+        cache.put(three, mockDrawable());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(3 * ENTRY_SIZE, cache.getSize());
+
+        cache.release(two);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.getRefCount(two));
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() {
+        cache.put(one, mockDrawable());
+        cache.put(two, mockDrawable());
+        cache.release(one);
+        cache.release(two);
+        cache.acquire(one);
+        cache.release(one);
+
+        cache.put(three, mockDrawable());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.acquire(one));
+        assertNull(cache.acquire(two));
+    }
+
+    @Test
+    public void setMaxSizeTrims() {
+        cache.put(one, mockDrawable());
+        cache.release(one);
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void trimMemoryDropsPrefetchedFirst() {
+        cache.put(one, mockDrawable());
+        cache.release(one);
+        cache.putPrefetched(two, mockDrawable());
+        assertTrue(cache.isPrefetched(two));
+
+        assertEquals(ENTRY_SIZE, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertFalse(cache.contains(two));
+        assertTrue(cache.contains(one));
+
+        assertEquals(ENTRY_SIZE, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void trimMemoryKeepsReferencedAndAcquiredPrefetches() {
+        cache.put(one, mockDrawable());
+        cache.putPrefetched(two, mockDrawable());
+        cache.acquire(two);
+        cache.release(two);
+        assertFalse(cache.isPrefetched(two));
+
+        assertEquals(0, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(ENTRY_SIZE, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+        assertTrue(cache.contains(one));
+    }
+
+    @Test
+    public void trimReportsBytesFreedPerLevel() {
+        final long[] freed = new long[100];
+        cache.setOnTrimListener(new ImageCache.OnTrimListener() {
+            @Override
+            public void onTrimmed(int level, long bytes) {
+                freed[level] += bytes;
+            }
+        });
+        cache.putPrefetched(one, mockDrawable());
+        cache.put(two, mockDrawable());
+        cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(ENTRY_SIZE, freed[ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE]);
+
+        assertEquals(0, cache.evict(two, ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        cache.release(two);
+        assertEquals(ENTRY_SIZE, cache.evict(two, ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(ENTRY_SIZE, freed[ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL]);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.ogbizi.android_swappable_imageview.TestHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ImageHandoffTest {
+
+    private ImageHandoff handoff;
+    private ImageCache cache;
+    private ImageCache.Key one = new ImageCache.Key(1, 64, 32);
+    private ImageCache.Key oneLarge = new ImageCache.Key(1, 128, 64);
+    private ImageCache.Key two = new ImageCache.Key(2, 64, 32);
+
+    @Before
+    public void setUp() {
+        handoff = new ImageHandoff();
+        cache = new ImageCache(Long.MAX_VALUE);
+        cache.put(one, mockDrawable());
+        cache.put(oneLarge, mockDrawable());
+        cache.release(one);
+        cache.release(oneLarge);
+    }
+
+    @Test
+    public void retainReferencesCachedDecodes() {
+        long token = handoff.retain(null, cache, one, oneLarge, two, null);
+        assertNotEquals(0, token);
+        assertEquals(1, cache.getRefCount(one));
+        assertEquals(1, cache.getRefCount(oneLarge));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+
+        ImageHandoff.Retained retained = handoff.claim(token);
+        assertNotNull(retained);
+        assertNull(handoff.claim(token));
+        assertEquals(oneLarge, retained.find(cache, one.source));
+        assertNull(retained.find(cache, two.source));
+        assertNull(retained.find(new ImageCache(1), one.source));
+
+        retained.release();
+        assertEquals(0, cache.getRefCount(one));
+        assertEquals(0, cache.getRefCount(oneLarge));
+    }
+
+    @Test
+    public void nothingRetainedWithoutDecodes() {
+        assertEquals(0, handoff.retain(null, cache, two));
+        assertEquals(0, handoff.getRetainedCount());
+    }
+
+    @Test
+    public void unclaimedDecodesReleasedOnResume() {
+        handoff.retain(null, cache, one);
+        handoff.onActivityResumed(mock(Activity.class));
+        assertEquals(0, handoff.getRetainedCount());
+        assertEquals(0, cache.getRefCount(one));
+    }
+
+    @Test
+    public void releasedWhenOwnerFinishes() {
+        Activity rotating = mock(Activity.class);
+        when(rotating.isChangingConfigurations()).thenReturn(true);
+        Activity finishing = mock(Activity.class);
+        handoff.retain(rotating, cache, one);
+        handoff.retain(finishing, cache, oneLarge);
+
+        handoff.onActivityDestroyed(rotating);
+        handoff.onActivityDestroyed(finishing);
+        assertEquals(1, handoff.getRetainedCount());
+        assertEquals(1, cache.getRefCount(one));
+        assertEquals(0, cache.getRefCount(oneLarge));
+
+        handoff.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, handoff.getRetainedCount());
+        assertEquals(0, cache.getRefCount(one));
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ImageLoaderTest {
+
+    private QueueExecutor worker;
+    private QueueExecutor delivery;
+    private ImageLoader loader;
+    private Drawable[] loaded;
+
+    @Before
+    public void setUp() {
+        worker = new QueueExecutor();
+        delivery = new QueueExecutor();
+        loader = new ImageLoader(null, worker, delivery, new ImageCache(0)) {
+            @Override
+            protected Drawable decode(@NonNull ImageCache.Key key) {
+                return key.source == null ? null : mock(Drawable.class);
+            }
+        };
+        loaded = null;
+    }
+
+    @Test
+    public void loadDecodesOnWorkerAndDeliversOnDelivery() {
+        ImageLoader.Request request = loader.load(callback(), 1, 0, 2);
+        assertEquals(1, worker.size());
+        assertEquals(0, delivery.size());
+
+        worker.runAll();
+        assertNull(loaded);
+        assertEquals(1, delivery.size());
+        assertFalse(request.isDelivered());
+
+        delivery.runAll();
+        assertTrue(request.isDelivered());
+        assertNotNull(loaded);
+        assertEquals(3, loaded.length);
+        assertNotNull(loaded[0]);
+        assertNull(loaded[1]);
+        assertNotNull(loaded[2]);
+    }
+
+    @Test
+    public void cancelBeforeDecode() {
+        ImageLoader.Request request = loader.load(callback(), 1);
+        request.cancel();
+        worker.runAll();
+        assertEquals(0, delivery.size());
+        assertTrue(request.isCancelled());
+        assertNull(loaded);
+    }
+
+    @Test
+    public void cancelBeforeDelivery() {
+        ImageLoader.Request request = loader.load(callback(), 1);
+        worker.runAll();
+        request.cancel();
+        delivery.runAll();
+        assertNull(loaded);
+    }
+
+    @Test
+    public void getSizeBucket() {
+        assertEquals(0, ImageLoader.getSizeBucket(0));
+        assertEquals(32, ImageLoader.getSizeBucket(1));
+        assertEquals(160, ImageLoader.getSizeBucket(144));
+        assertEquals(160, ImageLoader.getSizeBucket(160));
+    }
+
+    @Test
+    public void getSampleSize() {
+        assertEquals(1, ImageLoader.getSampleSize(100, 100, 200, 200));
+        assertEquals(1, ImageLoader.getSampleSize(300, 300, 160, 160));
+        assertEquals(4, ImageLoader.getSampleSize(1000, 1000, 160, 160));
+        assertEquals(16, ImageLoader.getSampleSize(4000, 3000, 160, 160));
+    }
+
+    private ImageLoader.Callback callback() {
+        return new ImageLoader.Callback() {
+            @Override
+            public void onLoaded(Drawable... drawables) {
+                loaded = drawables;
+            }
+        };
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mQueue = new LinkedList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mQueue.add(command);
+        }
+
+        int size() {
+            return mQueue.size();
+        }
+
+        void runAll() {
+            while (!mQueue.isEmpty()) {
+                mQueue.poll().run();
+            }
+        }
+    }
+}
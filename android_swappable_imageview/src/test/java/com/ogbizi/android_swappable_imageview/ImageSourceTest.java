@@ -0,0 +1,95 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ImageSourceTest {
+
+    @Test
+    public void resourceKeysMatchResourceIds() {
+        assertEquals(new ImageCache.Key(1, 32, 32),
+                     new ImageCache.Key(ImageSource.fromResource(1), 32, 32));
+        assertEquals(new ImageCache.Key(0, 32, 32), new ImageCache.Key(null, 32, 32));
+        assertEquals(1, ImageSource.fromResource(1).getResourceId());
+        assertEquals(0, ImageSource.fromAsset("a.png").getResourceId());
+    }
+
+    @Test
+    public void sourcesOfDifferentKindsDiffer() {
+        assertEquals(ImageSource.fromAsset("a.png"), ImageSource.fromAsset("a.png"));
+        assertNotEquals(ImageSource.fromAsset("a.png"), ImageSource.fromAsset("b.png"));
+        assertNotEquals(ImageSource.fromAsset("1"), ImageSource.fromResource(1));
+    }
+
+    @Test
+    public void fileSourceChangesWithFile() throws IOException {
+        File file = File.createTempFile("image", ".png");
+        try {
+            ImageSource before = ImageSource.fromFile(file);
+            assertEquals(before, ImageSource.fromFile(file));
+            assertEquals(before.hashCode(), ImageSource.fromFile(file).hashCode());
+
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[16]);
+            out.close();
+            assertNotEquals(before, ImageSource.fromFile(file));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void savedStringsRecreateSources() throws IOException {
+        ImageSource asset = ImageSource.fromAsset("images/a.png");
+        assertEquals(asset, ImageSource.fromSavedString(asset.getSavedString()));
+        File file = File.createTempFile("image", ".png");
+        try {
+            ImageSource source = ImageSource.fromFile(file);
+            assertEquals(source, ImageSource.fromSavedString(source.getSavedString()));
+        } finally {
+            assertTrue(file.delete());
+        }
+        assertNull(ImageSource.fromResource(1).getSavedString());
+        assertNull(ImageSource.fromSavedString(null));
+        assertNull(ImageSource.fromSavedString("unknown:a.png"));
+    }
+
+    @Test
+    public void byteSourcesAreKeyedByTheCallersKey() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        ImageSource source = ImageSource.fromBytes(buffer, "a");
+        assertEquals(source, ImageSource.fromBytes(ByteBuffer.allocateDirect(4), "a"));
+        assertEquals(source.hashCode(), ImageSource.fromBytes(buffer, "a").hashCode());
+        assertNotEquals(source, ImageSource.fromBytes(buffer, "b"));
+        assertNotEquals(source, ImageSource.fromAsset("a"));
+        assertEquals("bytes:a", source.getDiskKey());
+        assertNull(source.getSavedString());
+    }
+
+    @Test
+    public void bufferStreamReadsFromPositionToLimit() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(6);
+        buffer.put(new byte[]{9, 1, 2, (byte) 200, 4, 9});
+        buffer.position(1);
+        buffer.limit(5);
+        InputStream in = new ImageSource.BufferInputStream(buffer.slice());
+        assertEquals(4, in.available());
+        assertEquals(1, in.read());
+        in.mark(4);
+        byte[] bytes = new byte[8];
+        assertEquals(3, in.read(bytes, 0, bytes.length));
+        assertEquals(200, bytes[1] & 0xff);
+        assertEquals(-1, in.read());
+        in.reset();
+        assertEquals(1, in.skip(1));
+        assertEquals(200, in.read());
+        assertEquals(1, buffer.position());
+    }
+}
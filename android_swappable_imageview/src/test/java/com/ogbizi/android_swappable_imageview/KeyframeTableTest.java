@@ -0,0 +1,67 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.animation.TimeInterpolator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyframeTableTest {
+
+    private static final float DELTA = 0.001f;
+
+    private KeyframeTable slide(TimeInterpolator interpolator) {
+        KeyframeHorizontalBehavior behavior = new KeyframeHorizontalBehavior();
+        SwapTransform primaryStart = new SwapTransform();
+        SwapTransform primaryEnd = new SwapTransform();
+        SwapTransform secondaryStart = new SwapTransform();
+        SwapTransform secondaryEnd = new SwapTransform();
+        behavior.onDescribeSwap(false, 100, 50, primaryStart, primaryEnd, secondaryStart, secondaryEnd);
+        secondaryStart.setAlpha(0);
+        return new KeyframeTable(primaryStart, primaryEnd, secondaryStart, secondaryEnd, interpolator);
+    }
+
+    @Test
+    public void linearFramesMatchTransforms() {
+        KeyframeTable table = slide(null);
+        int secondary = SwapTransform.PROPERTY_COUNT;
+        float[] frame = table.getFrame(0);
+        assertEquals(0, frame[SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(100, frame[secondary + SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(0, frame[secondary + SwapTransform.ALPHA], DELTA);
+        assertEquals(1, frame[SwapTransform.SCALE_X], DELTA);
+        frame = table.getFrame(0.3f);
+        assertEquals(-30, frame[SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(70, frame[secondary + SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(0.3f, frame[secondary + SwapTransform.ALPHA], DELTA);
+        frame = table.getFrame(1);
+        assertEquals(-100, frame[SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(0, frame[secondary + SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(1, frame[secondary + SwapTransform.ALPHA], DELTA);
+    }
+
+    @Test
+    public void fractionIsClamped() {
+        KeyframeTable table = slide(null);
+        assertEquals(0, table.getFrame(-1)[SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(-100, table.getFrame(2)[SwapTransform.TRANSLATION_X], DELTA);
+    }
+
+    @Test
+    public void interpolatorIsBakedIn() {
+        KeyframeTable table = slide(new TimeInterpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return input * input;
+            }
+        });
+        assertEquals(-25, table.getFrame(0.5f)[SwapTransform.TRANSLATION_X], DELTA);
+        assertEquals(-100, table.getFrame(1)[SwapTransform.TRANSLATION_X], DELTA);
+    }
+
+    @Test
+    public void getFrameReusesArray() {
+        KeyframeTable table = slide(null);
+        assertSame(table.getFrame(0.1f), table.getFrame(0.9f));
+    }
+}
@@ -0,0 +1,77 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SourceWindowTest {
+
+    private final SwappableImageAdapter adapter = new SwappableImageAdapter() {
+        @Override
+        public int getCount() {
+            return 1000000;
+        }
+
+        @Override
+        public ImageSource getImageSource(int position) {
+            return ImageSource.fromAsset(position + ".png");
+        }
+    };
+
+    @Test
+    public void sourcesAroundCenterAreKept() {
+        SourceWindow window = new SourceWindow(2);
+        assertEquals(ImageSource.fromAsset("500.png"), window.get(adapter, 500, 500));
+        window.get(adapter, 501, 500);
+        window.get(adapter, 499, 500);
+        assertEquals(3, window.getLoadCount());
+        window.get(adapter, 501, 500);
+        window.get(adapter, 499, 500);
+        assertEquals(3, window.getLoadCount());
+
+        window.get(adapter, 600, 500);
+        window.get(adapter, 600, 500);
+        assertEquals(5, window.getLoadCount());
+    }
+
+    @Test
+    public void movingOnlyDropsSourcesLeaving() {
+        SourceWindow window = new SourceWindow(2);
+        for (int position = 498; position <= 502; position++) {
+            window.get(adapter, position, 500);
+        }
+        assertEquals(5, window.getLoadCount());
+        window.get(adapter, 502, 501);
+        window.get(adapter, 499, 501);
+        assertEquals(5, window.getLoadCount());
+        assertEquals(ImageSource.fromAsset("503.png"), window.get(adapter, 503, 501));
+        assertEquals(6, window.getLoadCount());
+        window.get(adapter, 498, 500);
+        window.get(adapter, 502, 500);
+        assertEquals(7, window.getLoadCount());
+    }
+
+    @Test
+    public void changesDropAffectedSources() {
+        SourceWindow window = new SourceWindow(2);
+        for (int position = 0; position <= 4; position++) {
+            window.get(adapter, position, 2);
+        }
+        window.onChanged(3, 10);
+        window.get(adapter, 2, 2);
+        assertEquals(5, window.getLoadCount());
+        window.get(adapter, 3, 2);
+        assertEquals(6, window.getLoadCount());
+
+        window.onMoved(1);
+        window.get(adapter, 0, 2);
+        assertEquals(6, window.getLoadCount());
+        window.get(adapter, 1, 2);
+        window.get(adapter, 4, 2);
+        assertEquals(8, window.getLoadCount());
+
+        window.clear();
+        window.get(adapter, 0, 2);
+        assertEquals(9, window.getLoadCount());
+    }
+}
@@ -0,0 +1,413 @@
+package com.ogbizi.android_swappable_imageview;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ImageView;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static com.ogbizi.android_swappable_imageview.TestHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Counts the work done by scripted swap scenarios and fails when any count
+ * goes over the checked in baseline. Counts must match or beat the baseline
+ * exactly, allocations get some slack for differences between JVMs.
+ * <p>
+ * Record a new baseline after an intended change with
+ * {@code ./gradlew :android_swappable_imageview:testDebugUnitTest -DswapCost.record=true}
+ * and check in the updated {@value #BASELINE}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class SwapCostRegressionTest {
+
+    private static final String BASELINE = "swap_cost_baseline.properties";
+    private static final String BASELINE_PATH = "src/test/resources/" + BASELINE;
+    private static final String BASELINE_HEADER = ""
+            + "# Swap cost baseline checked by SwapCostRegressionTest, one\n"
+            + "# <scenario>.<count>=<limit> entry per count:\n"
+            + "#   binds, measures, layouts, layoutRequests, invalidations, allocatedBytes\n"
+            + "# A count with no entry fails. Record the entries with\n"
+            + "#   ./gradlew :android_swappable_imageview:testDebugUnitTest -DswapCost.record=true\n";
+    private static final float ALLOCATION_SLACK = 1.1f;
+    /**
+     * Runs of each scenario, the first only loads classes and warms up the
+     * JIT. Allocations are compared for the least allocating run after it,
+     * since an unrelated allocation now and then lands in any single run.
+     */
+    private static final int RUNS = 4;
+    private static final long FRAME_NANOS = 16666667;
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 320;
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Properties RECORDED = new Properties();
+
+    private final ManualScheduler mScheduler = new ManualScheduler();
+    private final SwapFrameDriver mDriver = new SwapFrameDriver(mScheduler);
+    private CountingView mView;
+    private long mFrameNanos = 0;
+    private long mAllocatedBytes;
+    private long mLeastAllocatedBytes = Long.MAX_VALUE;
+
+    @Test
+    public void singleSwap() {
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            startCounting();
+            mView.showNext(true);
+            runFrames();
+            check(run, "singleSwap", stopCounting());
+        }
+    }
+
+    @Test
+    public void rapidSwaps() {
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            startCounting();
+            for (int i = 0; i < 100; i++) {
+                mView.showNext(false);
+                runFrame();
+            }
+            runFrames();
+            check(run, "rapidSwaps", stopCounting());
+        }
+    }
+
+    @Test
+    public void relayoutStorm() {
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            startCounting();
+            for (int i = 0; i < 100; i++) {
+                layout(WIDTH - i % 8, HEIGHT + i % 8);
+            }
+            for (int i = 0; i < 10; i++) {
+                layout(WIDTH + i * ImageLoader.SIZE_BUCKET, HEIGHT);
+            }
+            check(run, "relayoutStorm", stopCounting());
+        }
+    }
+
+    /**
+     * Alternating swaps with a ring of three slots only promote the slots,
+     * which stay bound to both neighbours after every refill
+     */
+    @Test
+    public void ringSwaps() {
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            mView.setSlotCount(3);
+            mView.refillSlots();
+            startCounting();
+            for (int i = 0; i < 50; i++) {
+                mView.showNext(true);
+                runFrames();
+                mView.refillSlots();
+                mView.showPrevious(true);
+                runFrames();
+                mView.refillSlots();
+            }
+            Map<String, Long> counts = stopCounting();
+            assertEquals(0, counts.get("binds").longValue());
+            check(run, "ringSwaps", counts);
+        }
+    }
+
+    @Test
+    public void largeDrawableLoads() {
+        int[] drawables = getDrawables(100000);
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            startCounting();
+            mView.setDrawables(50000, drawables);
+            for (int i = 0; i < 10000; i++) {
+                mView.setNext(drawables[i]);
+            }
+            check(run, "largeDrawableLoads", stopCounting());
+        }
+    }
+
+    /**
+     * An adapter over a million images is only asked for the sources near
+     * the current one, however many are inserted or removed
+     */
+    @Test
+    public void largeAdapterLoads() {
+        final int[] drawables = getDrawables(4);
+        final int[] lookups = new int[1];
+        final int[] count = {1000000};
+        SwappableImageAdapter adapter = new SwappableImageAdapter() {
+            @Override
+            public int getCount() {
+                return count[0];
+            }
+
+            @Override
+            public ImageSource getImageSource(int position) {
+                lookups[0]++;
+                return ImageSource.fromResource(drawables[position % drawables.length]);
+            }
+        };
+        for (int run = 0; run < RUNS; run++) {
+            setUpView(8);
+            lookups[0] = 0;
+            count[0] = 1000000;
+            startCounting();
+            mView.setAdapter(500000, adapter);
+            for (int i = 0; i < 100; i++) {
+                count[0] += 1000;
+                adapter.notifyItemRangeInserted(0, 1000);
+                count[0] -= 1000;
+                adapter.notifyItemRangeRemoved(900000, 1000);
+                mView.showNext(false);
+                runFrames();
+            }
+            Map<String, Long> counts = stopCounting();
+            assertEquals(500000 + 100 * 1000 + 100, mView.getCurrentIndex());
+            assertTrue("adapter lookups: " + lookups[0], lookups[0] < 100 * 20);
+            check(run, "largeAdapterLoads", counts);
+        }
+    }
+
+    @AfterClass
+    public static void recordBaseline() throws IOException {
+        if (!Boolean.getBoolean("swapCost.record")) {
+            return;
+        }
+        Properties baseline = loadBaseline();
+        baseline.putAll(RECORDED);
+        // written sorted and without a timestamp so re-recording diffs cleanly
+        Writer out = new OutputStreamWriter(new FileOutputStream(new File(BASELINE_PATH)), "ISO-8859-1");
+        try {
+            out.write(BASELINE_HEADER);
+            for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+                out.write(key + "=" + baseline.getProperty(key) + "\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Properties loadBaseline() throws IOException {
+        Properties baseline = new Properties();
+        InputStream in = SwapCostRegressionTest.class.getClassLoader().getResourceAsStream(BASELINE);
+        if (in != null) {
+            try {
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Compare the counts of the last run of a scenario and its least
+     * allocation against the baseline, or record them
+     */
+    private void check(int run, String scenario, Map<String, Long> counts) {
+        if (run == 0) {
+            return;
+        }
+        mLeastAllocatedBytes = Math.min(mLeastAllocatedBytes, counts.get("allocatedBytes"));
+        if (run < RUNS - 1) {
+            return;
+        }
+        counts.put("allocatedBytes", mLeastAllocatedBytes);
+        if (Boolean.getBoolean("swapCost.record")) {
+            for (Map.Entry<String, Long> count : counts.entrySet()) {
+                RECORDED.setProperty(scenario + "." + count.getKey(), String.valueOf(count.getValue()));
+            }
+            return;
+        }
+        Properties baseline;
+        try {
+            baseline = loadBaseline();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            String key = scenario + "." + count.getKey();
+            String value = baseline.getProperty(key);
+            assertNotNull("no baseline for " + key + ", record one with -DswapCost.record=true", value);
+            long limit = Long.parseLong(value);
+            if (count.getKey().equals("allocatedBytes")) {
+                limit = (long) (limit * ALLOCATION_SLACK);
+            }
+            assertTrue(key + ": " + count.getValue() + " is over the baseline of " + value,
+                       count.getValue() <= limit);
+        }
+    }
+
+    private static int[] getDrawables(int size) {
+        int[] icons = {
+                android.R.drawable.ic_menu_camera, android.R.drawable.ic_menu_gallery,
+                android.R.drawable.ic_menu_compass, android.R.drawable.ic_menu_call,
+        };
+        int[] drawables = new int[size];
+        for (int i = 0; i < size; i++) {
+            drawables[i] = icons[i % icons.length];
+        }
+        return drawables;
+    }
+
+    private void setUpView(int size) {
+        Context context = RuntimeEnvironment.application;
+        mView = new CountingView(context);
+        mView.setImageLoader(new ImageLoader(context, DIRECT, DIRECT, new ImageCache(8 * 1024 * 1024)));
+        mView.setFrameDriver(mDriver);
+        mView.setDrawables(0, getDrawables(size));
+        layout(WIDTH, HEIGHT);
+    }
+
+    private void layout(int width, int height) {
+        mView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                      View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        mView.layout(0, 0, width, height);
+    }
+
+    private void runFrame() {
+        if (mScheduler.isPosted) {
+            mScheduler.isPosted = false;
+            mFrameNanos += FRAME_NANOS;
+            mDriver.doFrame(mFrameNanos);
+        }
+    }
+
+    private void runFrames() {
+        while (mScheduler.isPosted) {
+            runFrame();
+        }
+        assertFalse(mView.isSwapping());
+    }
+
+    private void startCounting() {
+        mView.resetCounts();
+        mAllocatedBytes = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private Map<String, Long> stopCounting() {
+        long allocatedBytes = THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("binds", (long) mView.getBindCount() - mView.bindOffset);
+        counts.put("measures", (long) mView.measureCount);
+        counts.put("layouts", (long) mView.layoutCount);
+        counts.put("layoutRequests", (long) mView.layoutRequestCount);
+        counts.put("invalidations", (long) mView.invalidateCount);
+        counts.put("allocatedBytes", allocatedBytes - mAllocatedBytes);
+        return counts;
+    }
+
+    /**
+     * Posts frames only when the test runs them
+     */
+    private static class ManualScheduler implements SwapFrameDriver.FrameScheduler {
+        boolean isPosted = false;
+
+        @Override
+        public void postFrame(SwapFrameDriver driver) {
+            isPosted = true;
+        }
+    }
+
+    /**
+     * Counts the measure, layout and invalidation passes of the view and of
+     * its image views
+     */
+    private static class CountingView extends SwappableImageView {
+        int bindOffset;
+        int measureCount;
+        int layoutCount;
+        int layoutRequestCount;
+        int invalidateCount;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected ImageView createImageView(Context context) {
+            return new CountingImageView(context, this);
+        }
+
+        void resetCounts() {
+            bindOffset = getBindCount();
+            measureCount = 0;
+            layoutCount = 0;
+            layoutRequestCount = 0;
+            invalidateCount = 0;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layoutCount++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        @Override
+        public void requestLayout() {
+            layoutRequestCount++;
+            super.requestLayout();
+        }
+
+        @Override
+        public void invalidate() {
+            invalidateCount++;
+            super.invalidate();
+        }
+    }
+
+    /**
+     * Adds its layout requests and invalidations to the counts of its parent
+     */
+    private static class CountingImageView extends ImageView {
+        private final CountingView mCounts;
+
+        CountingImageView(Context context, CountingView counts) {
+            super(context);
+            mCounts = counts;
+        }
+
+        @Override
+        public void requestLayout() {
+            if (mCounts != null) {
+                mCounts.layoutRequestCount++;
+            }
+            super.requestLayout();
+        }
+
+        @Override
+        public void invalidate() {
+            if (mCounts != null) {
+                mCounts.invalidateCount++;
+            }
+            super.invalidate();
+        }
+    }
+}
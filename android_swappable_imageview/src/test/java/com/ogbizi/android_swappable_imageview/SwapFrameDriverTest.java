@@ -0,0 +1,124 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SwapFrameDriverTest {
+
+    private static final long FRAME = 16000000;
+
+    private int postCount;
+    private SwapFrameDriver driver;
+
+    @Before
+    public void setUp() {
+        postCount = 0;
+        driver = new SwapFrameDriver(new SwapFrameDriver.FrameScheduler() {
+            @Override
+            public void postFrame(SwapFrameDriver driver) {
+                postCount++;
+            }
+        });
+    }
+
+    @Test
+    public void frameCallbacksDoNotGrowWithClients() {
+        assertEquals(10, runSwaps(1, 10));
+        int single = postCount;
+        setUp();
+        assertEquals(10, runSwaps(500, 10));
+        assertEquals(single, postCount);
+    }
+
+    @Test
+    public void ticksEveryClientOncePerFrame() {
+        CountingClient[] clients = new CountingClient[100];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new CountingClient(5);
+            driver.add(clients[i]);
+        }
+        driver.add(clients[0]);
+        assertEquals(1, postCount);
+        assertEquals(100, driver.getActiveCount());
+
+        driver.doFrame(0);
+        for (CountingClient client : clients) {
+            assertEquals(1, client.frames);
+        }
+    }
+
+    @Test
+    public void staysUnregisteredWhenIdle() {
+        driver.add(new CountingClient(1));
+        driver.doFrame(0);
+        assertEquals(0, driver.getActiveCount());
+        assertEquals(1, postCount);
+
+        driver.add(new CountingClient(1));
+        assertEquals(2, postCount);
+    }
+
+    @Test
+    public void removeStopsTicking() {
+        CountingClient client = new CountingClient(5);
+        driver.add(client);
+        driver.doFrame(0);
+        driver.remove(client);
+        assertEquals(0, driver.getActiveCount());
+        driver.doFrame(FRAME);
+        assertEquals(1, client.frames);
+    }
+
+    @Test
+    public void clientAddedDuringFrameStartsNextFrame() {
+        final CountingClient late = new CountingClient(1);
+        driver.add(new SwapFrameDriver.Client() {
+            @Override
+            public boolean onFrame(long frameTimeNanos) {
+                driver.add(late);
+                return false;
+            }
+        });
+        driver.doFrame(0);
+        assertEquals(0, late.frames);
+        assertEquals(1, driver.getActiveCount());
+
+        driver.doFrame(FRAME);
+        assertEquals(1, late.frames);
+        assertEquals(0, driver.getActiveCount());
+    }
+
+    /**
+     * Run clients lasting the given number of frames until all are done
+     *
+     * @return the number of frames run
+     */
+    private int runSwaps(int clients, int frames) {
+        for (int i = 0; i < clients; i++) {
+            driver.add(new CountingClient(frames));
+        }
+        long time = 0;
+        while (driver.getActiveCount() > 0) {
+            driver.doFrame(time);
+            time += FRAME;
+        }
+        return driver.getFrameCount();
+    }
+
+    private class CountingClient implements SwapFrameDriver.Client {
+        private final int mLength;
+        int frames = 0;
+
+        CountingClient(int length) {
+            mLength = length;
+        }
+
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            frames++;
+            return frames < mLength;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SwapMetricsTest {
+
+    private static final long MS = 1000000;
+
+    @Test
+    public void recordsFrameTimings() {
+        SwapMetrics metrics = new SwapMetrics(false, 1, 2, 0);
+        metrics.onDecoded(5 * MS);
+        metrics.onStart(100 * MS, 16 * MS);
+        long[] frames = {20, 36, 52, 100, 116};
+        for (long frame : frames) {
+            metrics.onFrame(frame * MS);
+        }
+        metrics.onEnd(120 * MS);
+
+        assertEquals(5 * MS, metrics.getDecodeNanos());
+        assertEquals(20 * MS, metrics.getFirstFrameLatencyNanos());
+        assertEquals(120 * MS, metrics.getTotalNanos());
+        assertEquals(5, metrics.getFrameCount());
+        assertEquals(7, metrics.getExpectedFrameCount());
+        assertEquals(48 * MS, metrics.getLongestFrameGapNanos());
+        assertFalse(metrics.isCancelled());
+    }
+
+    @Test
+    public void cancelledBeforeDecode() {
+        SwapMetrics metrics = new SwapMetrics(true, 2, 1, 10);
+        metrics.onCancel();
+        metrics.onEnd(20);
+
+        assertTrue(metrics.isCancelled());
+        assertTrue(metrics.isReverse());
+        assertEquals(-1, metrics.getDecodeNanos());
+        assertEquals(-1, metrics.getFirstFrameLatencyNanos());
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(10, metrics.getTotalNanos());
+    }
+}
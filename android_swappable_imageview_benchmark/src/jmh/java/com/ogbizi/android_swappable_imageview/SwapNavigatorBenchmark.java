@@ -0,0 +1,121 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of navigating, inserting into and bulk loading large drawable
+ * sequences, run with {@code ./gradlew :android_swappable_imageview_benchmark:jmh}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwapNavigatorBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] mValues;
+    private SwapNavigator mNavigator;
+    private SwapNavigator mVirtual;
+
+    @Setup(Level.Trial)
+    public void createValues() {
+        mValues = new int[size];
+        for (int i = 0; i < size; i++) {
+            mValues[i] = i + 1;
+        }
+    }
+
+    /**
+     * Start every iteration from a freshly loaded sequence, so the bulk loads
+     * and range edits measure the same sizes
+     */
+    @Setup(Level.Iteration)
+    public void loadNavigator() {
+        mNavigator = new SwapNavigator();
+        mNavigator.setLooping(true);
+        mNavigator.setAll(size / 2, mValues);
+        mVirtual = new SwapNavigator();
+        mVirtual.setVirtual(size / 2, size);
+    }
+
+    @Benchmark
+    public int showNext() {
+        mNavigator.setCurrentIndex(mNavigator.getNextIndex());
+        return mNavigator.getCurrentIndex();
+    }
+
+    @Benchmark
+    public int showPrevious() {
+        mNavigator.setCurrentIndex(mNavigator.getPreviousIndex());
+        return mNavigator.getCurrentIndex();
+    }
+
+    @Benchmark
+    public int jumpCoalescedSteps() {
+        mNavigator.setCurrentIndex(mNavigator.getIndex(mNavigator.getCurrentIndex() + 7));
+        return mNavigator.getCurrentIndex();
+    }
+
+    /**
+     * Insert and remove the inserted drawable, so the sequence keeps its size
+     * for every invocation
+     */
+    @Benchmark
+    public int insertNext() {
+        return mNavigator.remove(mNavigator.insertNext(size));
+    }
+
+    @Benchmark
+    public int insertPrevious() {
+        return mNavigator.remove(mNavigator.insertPrevious(size));
+    }
+
+    /**
+     * Insert while moving through the sequence, which moves the insertion
+     * point every call
+     */
+    @Benchmark
+    public int insertWhileNavigating() {
+        mNavigator.setCurrentIndex(mNavigator.getIndex(mNavigator.getCurrentIndex() + size / 3));
+        return mNavigator.remove(mNavigator.insertNext(size));
+    }
+
+    @Benchmark
+    public int setAll() {
+        mNavigator.setAll(0, mValues);
+        return mNavigator.size();
+    }
+
+    /**
+     * Insert and remove a range before the current index of a virtual
+     * sequence, as notified by an adapter
+     */
+    @Benchmark
+    public int virtualInsertAndRemoveRange() {
+        mVirtual.insertRange(0, 100);
+        mVirtual.removeRange(0, 100);
+        return mVirtual.getCurrentIndex();
+    }
+
+    @Benchmark
+    public int virtualSetAll() {
+        mVirtual.setVirtual(0, size);
+        return mVirtual.size();
+    }
+
+    @Benchmark
+    public int[] toArray() {
+        return mNavigator.getValues().toArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Read only ordered sequence of primitive ints with constant time indexed
+ * access, used for drawable resource ids without boxing
+ */
+public abstract class IntSequence {
+
+    /**
+     * @return the number of values in the sequence
+     */
+    public abstract int size();
+
+    /**
+     * Get the value at the index
+     *
+     * @param index the position in the sequence
+     * @return the value
+     * @throws IndexOutOfBoundsException if the index is not in 0..size - 1
+     */
+    public abstract int get(int index);
+
+    /**
+     * @return true if the sequence has no values
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Get the position of the first occurrence of the value
+     *
+     * @param value the value to find
+     * @return the index or -1 if not in the sequence
+     */
+    public int indexOf(int value) {
+        for (int i = 0, size = size(); i < size; i++) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param value the value to find
+     * @return true if the value is in the sequence
+     */
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Copy the values into a new array
+     *
+     * @return the values in order
+     */
+    public int[] toArray() {
+        int[] values = new int[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0, size = size(); i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(get(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Check an index is in range of the sequence
+     *
+     * @param index the index to check
+     * @param size  the size of the sequence
+     */
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
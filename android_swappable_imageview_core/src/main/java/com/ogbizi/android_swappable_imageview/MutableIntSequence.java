@@ -0,0 +1,177 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Growable int sequence backed by a gap buffer. The gap follows the last
+ * insertion point, so repeated insertions around the same position, as with
+ * {@link SwapNavigator#insertNext} and {@link SwapNavigator#insertPrevious}
+ * at the current index, are constant time amortized.
+ */
+public class MutableIntSequence extends IntSequence {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] mData;
+    private int mGapStart = 0;
+    private int mGapEnd;
+    private final IntSequence mReadOnly = new IntSequence() {
+        @Override
+        public int size() {
+            return MutableIntSequence.this.size();
+        }
+
+        @Override
+        public int get(int index) {
+            return MutableIntSequence.this.get(index);
+        }
+
+        @Override
+        public int[] toArray() {
+            return MutableIntSequence.this.toArray();
+        }
+    };
+
+    public MutableIntSequence() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of values to allocate space for
+     */
+    public MutableIntSequence(int capacity) {
+        mData = new int[Math.max(1, capacity)];
+        mGapEnd = mData.length;
+    }
+
+    @Override
+    public int size() {
+        return mData.length - (mGapEnd - mGapStart);
+    }
+
+    @Override
+    public int get(int index) {
+        checkIndex(index, size());
+        return mData[index < mGapStart ? index : index + mGapEnd - mGapStart];
+    }
+
+    /**
+     * Replace the value at the index
+     *
+     * @param index the position in the sequence
+     * @param value the new value
+     */
+    public void set(int index, int value) {
+        checkIndex(index, size());
+        mData[index < mGapStart ? index : index + mGapEnd - mGapStart] = value;
+    }
+
+    /**
+     * Append a value to the end of the sequence
+     *
+     * @param value the value to add
+     */
+    public void add(int value) {
+        insert(size(), value);
+    }
+
+    /**
+     * Insert a value shifting the value at the index and those after it
+     *
+     * @param index the position to insert at in 0..size
+     * @param value the value to insert
+     */
+    public void insert(int index, int value) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        moveGap(index);
+        if (mGapStart == mGapEnd) {
+            grow(mData.length + 1);
+        }
+        mData[mGapStart++] = value;
+    }
+
+    /**
+     * Remove the value at the index shifting those after it
+     *
+     * @param index the position in the sequence
+     * @return the value removed
+     */
+    public int removeAt(int index) {
+        checkIndex(index, size());
+        moveGap(index);
+        return mData[mGapEnd++];
+    }
+
+    /**
+     * Replace every value in the sequence
+     *
+     * @param values the new values in order
+     */
+    public void setAll(int... values) {
+        if (values.length > mData.length) {
+            mData = new int[values.length];
+        }
+        System.arraycopy(values, 0, mData, 0, values.length);
+        mGapStart = values.length;
+        mGapEnd = mData.length;
+    }
+
+    /**
+     * Remove every value keeping the allocated space
+     */
+    public void clear() {
+        mGapStart = 0;
+        mGapEnd = mData.length;
+    }
+
+    /**
+     * Get a view of this sequence that cannot be modified, changes made to this
+     * sequence are visible through it
+     *
+     * @return the read only view
+     */
+    public IntSequence readOnly() {
+        return mReadOnly;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] values = new int[size()];
+        System.arraycopy(mData, 0, values, 0, mGapStart);
+        System.arraycopy(mData, mGapEnd, values, mGapStart, mData.length - mGapEnd);
+        return values;
+    }
+
+    /**
+     * Move the gap so it starts at the index
+     *
+     * @param index the position in the sequence
+     */
+    private void moveGap(int index) {
+        if (index < mGapStart) {
+            int count = mGapStart - index;
+            System.arraycopy(mData, index, mData, mGapEnd - count, count);
+            mGapStart = index;
+            mGapEnd -= count;
+        } else if (index > mGapStart) {
+            int count = index - mGapStart;
+            System.arraycopy(mData, mGapEnd, mData, mGapStart, count);
+            mGapStart = index;
+            mGapEnd += count;
+        }
+    }
+
+    /**
+     * Grow the backing array by at least doubling it, widening the gap
+     *
+     * @param minCapacity the minimum capacity needed
+     */
+    private void grow(int minCapacity) {
+        int[] data = new int[Math.max(minCapacity, mData.length * 2)];
+        int tail = mData.length - mGapEnd;
+        System.arraycopy(mData, 0, data, 0, mGapStart);
+        System.arraycopy(mData, mGapEnd, data, data.length - tail, tail);
+        mGapEnd = data.length - tail;
+        mData = data;
+    }
+}
@@ -0,0 +1,279 @@
+package com.ogbizi.android_swappable_imageview;
+
+/**
+ * Ordered sequence of drawables and the index of the one displayed, with the
+ * rules for moving to the next and previous drawables. Free of any platform
+ * classes so navigation can be tested and benchmarked on a plain JVM.
+ * <p>
+ * A virtual sequence only has a size, its drawables are looked up elsewhere
+ * by index and ranges inserted or removed only move the current index.
+ */
+public class SwapNavigator {
+
+    private final MutableIntSequence mValues = new MutableIntSequence();
+    private boolean shouldLoop = false;
+    private int currentIndex = -1;
+    private int mVirtualSize = -1;
+
+    /**
+     * Get a read only view of the drawables
+     *
+     * @return the sequence of drawables, empty if virtual
+     */
+    public IntSequence getValues() {
+        return mValues.readOnly();
+    }
+
+    /**
+     * @return the number of drawables
+     */
+    public int size() {
+        return mVirtualSize >= 0 ? mVirtualSize : mValues.size();
+    }
+
+    /**
+     * Replace every drawable and move to the index
+     *
+     * @param index  the position to reset to
+     * @param values the drawables in order
+     */
+    public void setAll(int index, int... values) {
+        mVirtualSize = -1;
+        mValues.setAll(values);
+        setCurrentIndex(index);
+    }
+
+    /**
+     * Replace the drawables with a virtual sequence of the size given and move
+     * to the index
+     *
+     * @param index the position to reset to
+     * @param size  the number of drawables
+     */
+    public void setVirtual(int index, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size < 0: " + size);
+        }
+        mValues.clear();
+        mVirtualSize = size;
+        setCurrentIndex(index);
+    }
+
+    /**
+     * @return true if the sequence only has a size
+     */
+    public boolean isVirtual() {
+        return mVirtualSize >= 0;
+    }
+
+    /**
+     * Grow a virtual sequence by a range of drawables, moving the current
+     * index with the drawable it points at
+     *
+     * @param start the index of the first drawable inserted
+     * @param count the number of drawables inserted
+     */
+    public void insertRange(int start, int count) {
+        checkVirtual();
+        mVirtualSize += count;
+        currentIndex = currentIndex < 0 ? bound(0, -1, mVirtualSize - 1) : shiftInserted(currentIndex, start, count);
+    }
+
+    /**
+     * Shrink a virtual sequence by a range of drawables, moving the current
+     * index with the drawable it points at or to the drawable taking its place
+     * if it was removed
+     *
+     * @param start the index of the first drawable removed
+     * @param count the number of drawables removed
+     * @return true if the current drawable was removed
+     */
+    public boolean removeRange(int start, int count) {
+        checkVirtual();
+        mVirtualSize -= count;
+        boolean isRemoved = currentIndex >= start && currentIndex < start + count;
+        currentIndex = shiftRemoved(currentIndex, start, count, mVirtualSize);
+        return isRemoved;
+    }
+
+    private void checkVirtual() {
+        if (mVirtualSize < 0) {
+            throw new IllegalStateException("not a virtual sequence");
+        }
+    }
+
+    /**
+     * Get where an index moves to once a range is inserted
+     *
+     * @param index the index before the insertion
+     * @param start the index of the first drawable inserted
+     * @param count the number of drawables inserted
+     * @return the index after the insertion
+     */
+    public static int shiftInserted(int index, int start, int count) {
+        return index >= start ? index + count : index;
+    }
+
+    /**
+     * Get where an index moves to once a range is removed, indices in the
+     * range move to the drawable taking their place or the last one
+     *
+     * @param index the index before the removal
+     * @param start the index of the first drawable removed
+     * @param count the number of drawables removed
+     * @param size  the number of drawables after the removal
+     * @return the index after the removal or -1 if none remain
+     */
+    public static int shiftRemoved(int index, int start, int count, int size) {
+        if (index >= start + count) {
+            index -= count;
+        } else if (index >= start) {
+            index = start;
+        }
+        return bound(index, -1, size - 1);
+    }
+
+    /**
+     * Insert a drawable after the current one, the first drawable inserted
+     * becomes the current one
+     *
+     * @param value the drawable to insert
+     * @return the index inserted at
+     */
+    public int insertNext(int value) {
+        checkValues();
+        int position = currentIndex + 1;
+        mValues.insert(position, value);
+        currentIndex = Math.max(0, currentIndex);
+        return position;
+    }
+
+    /**
+     * Insert a drawable before the current one, keeping the current one
+     *
+     * @param value the drawable to insert
+     * @return the index inserted at
+     */
+    public int insertPrevious(int value) {
+        checkValues();
+        int position = Math.max(0, currentIndex);
+        mValues.insert(position, value);
+        currentIndex += 1;
+        return position;
+    }
+
+    /**
+     * Remove a drawable, moving the current index with the drawable it points
+     * at or to the drawable taking its place if it was removed
+     *
+     * @param index the index of the drawable to remove
+     * @return the drawable removed
+     */
+    public int remove(int index) {
+        checkValues();
+        int value = mValues.removeAt(index);
+        currentIndex = shiftRemoved(currentIndex, index, 1, mValues.size());
+        return value;
+    }
+
+    private void checkValues() {
+        if (mVirtualSize >= 0) {
+            throw new IllegalStateException("can not edit the drawables of a virtual sequence");
+        }
+    }
+
+    /**
+     * Set if navigation should loop over the drawables
+     *
+     * @param loop true to wrap around the ends
+     */
+    public void setLooping(boolean loop) {
+        shouldLoop = loop;
+    }
+
+    public boolean isLooping() {
+        return shouldLoop;
+    }
+
+    /**
+     * @return the index of the displayed drawable or -1 if there are none
+     */
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    /**
+     * Set the index of the displayed drawable, limited to the drawables
+     *
+     * @param index the drawable index
+     */
+    public void setCurrentIndex(int index) {
+        currentIndex = bound(index, 0, size() - 1);
+    }
+
+    /**
+     * Get the index a number of steps from the current one, limited to the
+     * drawables or wrapped around them if looping
+     *
+     * @param index the unlimited index
+     * @return the index of a drawable
+     */
+    public int getIndex(int index) {
+        int size = size();
+        if (size == 0) {
+            return currentIndex;
+        }
+        return shouldLoop ? (index % size + size) % size : bound(index, 0, size - 1);
+    }
+
+    /**
+     * Get the index of the next drawable
+     *
+     * @return the currentIndex + 1 or wrap around max if looping
+     */
+    public int getNextIndex() {
+        int index = currentIndex + 1;
+        int max = size() - 1;
+        return shouldLoop ? wrap(index, 0, max) : bound(index, 0, max);
+    }
+
+    /**
+     * Get the index of the previous drawable
+     *
+     * @return the currentIndex - 1 or wrap around min if looping
+     */
+    public int getPreviousIndex() {
+        int index = currentIndex - 1;
+        int max = size() - 1;
+        return shouldLoop ? wrap(index, 0, max) : bound(index, 0, max);
+    }
+
+    /**
+     * Limit value to bound range. Example #bound(-4, 0, 10) = 0
+     *
+     * @param value the value to limit
+     * @param min   the minimum value allowed
+     * @param max   the maximum value allowed
+     * @return the range limited value
+     */
+    public static int bound(int value, int min, int max) {
+        return Math.min(Math.max(value, min), max);
+    }
+
+    /**
+     * Wraps an integer value around a range Example #wrap(-4, 0, 10) = 10
+     *
+     * @param value the value to wrap
+     * @param min   the minimum value allowed
+     * @param max   the maximum value allowed
+     * @return the range limited value
+     */
+    public static int wrap(int value, int min, int max) {
+        return value < min ? max : value > max ? min : value;
+    }
+
+    @Override
+    public String toString() {
+        return currentIndex + " => " + (isVirtual() ? "[" + mVirtualSize + " virtual]" : mValues);
+    }
+}
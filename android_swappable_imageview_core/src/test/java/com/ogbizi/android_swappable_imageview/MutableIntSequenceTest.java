@@ -0,0 +1,71 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MutableIntSequenceTest {
+
+    @Test
+    public void insertAroundCursor() {
+        MutableIntSequence sequence = new MutableIntSequence(1);
+        sequence.insert(0, 2);
+        sequence.insert(1, 3);
+        sequence.insert(0, 1);
+        sequence.insert(3, 4);
+        sequence.insert(2, 9);
+        assertArrayEquals(new int[]{1, 2, 9, 3, 4}, sequence.toArray());
+        assertEquals(5, sequence.size());
+        assertEquals(9, sequence.get(2));
+        assertEquals(4, sequence.get(4));
+    }
+
+    @Test
+    public void setAllAndClear() {
+        MutableIntSequence sequence = new MutableIntSequence();
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 2;
+        }
+        sequence.setAll(values);
+        values[0] = -1;
+        assertEquals(1000, sequence.size());
+        assertEquals(0, sequence.get(0));
+        assertEquals(500, sequence.indexOf(1000));
+        assertFalse(sequence.contains(1001));
+
+        sequence.clear();
+        assertTrue(sequence.isEmpty());
+        sequence.add(7);
+        assertArrayEquals(new int[]{7}, sequence.toArray());
+    }
+
+    @Test
+    public void setAndRemove() {
+        MutableIntSequence sequence = new MutableIntSequence();
+        sequence.setAll(1, 2, 3, 4);
+        sequence.set(3, 8);
+        assertEquals(2, sequence.removeAt(1));
+        sequence.insert(1, 5);
+        assertArrayEquals(new int[]{1, 5, 3, 8}, sequence.toArray());
+        assertEquals("[1, 5, 3, 8]", sequence.toString());
+    }
+
+    @Test
+    public void readOnlyReflectsChanges() {
+        MutableIntSequence sequence = new MutableIntSequence();
+        IntSequence readOnly = sequence.readOnly();
+        assertSame(readOnly, sequence.readOnly());
+        sequence.setAll(1, 2);
+        sequence.insert(1, 3);
+        assertEquals(3, readOnly.size());
+        assertEquals(3, readOnly.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        MutableIntSequence sequence = new MutableIntSequence();
+        sequence.setAll(1, 2);
+        sequence.get(2);
+    }
+}
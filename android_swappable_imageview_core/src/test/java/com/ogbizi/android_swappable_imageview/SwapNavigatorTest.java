@@ -0,0 +1,147 @@
+package com.ogbizi.android_swappable_imageview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SwapNavigatorTest {
+
+    @Test
+    public void setAllBoundsCurrentIndex() {
+        SwapNavigator navigator = new SwapNavigator();
+        assertEquals(-1, navigator.getCurrentIndex());
+        navigator.setAll(99, 1, 2, 3, 4);
+        assertEquals(3, navigator.getCurrentIndex());
+        navigator.setCurrentIndex(-5);
+        assertEquals(0, navigator.getCurrentIndex());
+        assertArrayEquals(new int[]{1, 2, 3, 4}, navigator.getValues().toArray());
+    }
+
+    @Test
+    public void nextAndPreviousIndex() {
+        SwapNavigator navigator = new SwapNavigator();
+        navigator.setAll(0, 1, 2, 3, 4);
+        assertEquals(1, navigator.getNextIndex());
+        assertEquals(0, navigator.getPreviousIndex());
+        navigator.setLooping(true);
+        assertEquals(3, navigator.getPreviousIndex());
+        navigator.setCurrentIndex(3);
+        assertEquals(0, navigator.getNextIndex());
+        navigator.setLooping(false);
+        assertEquals(3, navigator.getNextIndex());
+        assertEquals(2, navigator.getPreviousIndex());
+    }
+
+    @Test
+    public void getIndexWrapsOrBoundsSteps() {
+        SwapNavigator navigator = new SwapNavigator();
+        assertEquals(-1, navigator.getIndex(5));
+        navigator.setAll(1, 1, 2, 3, 4);
+        assertEquals(3, navigator.getIndex(1 + 7));
+        assertEquals(0, navigator.getIndex(1 - 3));
+        navigator.setLooping(true);
+        assertEquals(0, navigator.getIndex(1 + 7));
+        assertEquals(2, navigator.getIndex(1 - 3));
+    }
+
+    @Test
+    public void insertNextAndPrevious() {
+        SwapNavigator navigator = new SwapNavigator();
+        assertEquals(0, navigator.insertNext(10));
+        assertEquals(0, navigator.getCurrentIndex());
+        assertEquals(1, navigator.insertNext(12));
+        assertEquals(1, navigator.insertNext(11));
+        assertEquals(0, navigator.insertPrevious(9));
+        assertEquals(1, navigator.getCurrentIndex());
+        assertArrayEquals(new int[]{9, 10, 11, 12}, navigator.getValues().toArray());
+    }
+
+    @Test
+    public void insertPreviousIntoEmpty() {
+        SwapNavigator navigator = new SwapNavigator();
+        assertEquals(0, navigator.insertPrevious(7));
+        assertEquals(0, navigator.getCurrentIndex());
+        assertEquals(1, navigator.size());
+    }
+
+    @Test
+    public void removeMovesCurrentIndex() {
+        SwapNavigator navigator = new SwapNavigator();
+        navigator.setAll(2, 1, 2, 3, 4);
+        assertEquals(1, navigator.remove(0));
+        assertEquals(1, navigator.getCurrentIndex());
+        assertEquals(4, navigator.remove(2));
+        assertEquals(1, navigator.getCurrentIndex());
+        assertEquals(3, navigator.remove(1));
+        assertEquals(0, navigator.getCurrentIndex());
+        assertEquals(2, navigator.remove(0));
+        assertEquals(-1, navigator.getCurrentIndex());
+    }
+
+    @Test
+    public void virtualSequenceOnlyHasSize() {
+        SwapNavigator navigator = new SwapNavigator();
+        navigator.setAll(0, 1, 2, 3);
+        navigator.setVirtual(150000, 100000);
+        assertTrue(navigator.isVirtual());
+        assertEquals(100000, navigator.size());
+        assertEquals(99999, navigator.getCurrentIndex());
+        assertTrue(navigator.getValues().isEmpty());
+        navigator.setLooping(true);
+        assertEquals(0, navigator.getNextIndex());
+        navigator.setAll(0, 1, 2);
+        assertFalse(navigator.isVirtual());
+        assertEquals(2, navigator.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void insertIntoVirtualFails() {
+        SwapNavigator navigator = new SwapNavigator();
+        navigator.setVirtual(0, 10);
+        navigator.insertNext(1);
+    }
+
+    @Test
+    public void rangesMoveCurrentIndex() {
+        SwapNavigator navigator = new SwapNavigator();
+        navigator.setVirtual(0, 0);
+        assertEquals(-1, navigator.getCurrentIndex());
+        navigator.insertRange(0, 100);
+        assertEquals(0, navigator.getCurrentIndex());
+        navigator.setCurrentIndex(50);
+        navigator.insertRange(60, 10);
+        assertEquals(50, navigator.getCurrentIndex());
+        navigator.insertRange(50, 10);
+        assertEquals(60, navigator.getCurrentIndex());
+        assertEquals(120, navigator.size());
+
+        assertFalse(navigator.removeRange(0, 10));
+        assertEquals(50, navigator.getCurrentIndex());
+        assertTrue(navigator.removeRange(45, 10));
+        assertEquals(45, navigator.getCurrentIndex());
+        assertTrue(navigator.removeRange(40, 60));
+        assertEquals(39, navigator.getCurrentIndex());
+        assertTrue(navigator.removeRange(0, 40));
+        assertEquals(-1, navigator.getCurrentIndex());
+        assertEquals(0, navigator.size());
+    }
+
+    @Test
+    public void shiftIndices() {
+        assertEquals(5, SwapNavigator.shiftInserted(5, 6, 3));
+        assertEquals(8, SwapNavigator.shiftInserted(5, 5, 3));
+        assertEquals(2, SwapNavigator.shiftRemoved(5, 0, 3, 7));
+        assertEquals(4, SwapNavigator.shiftRemoved(5, 4, 3, 7));
+        assertEquals(4, SwapNavigator.shiftRemoved(5, 4, 3, 5));
+        assertEquals(-1, SwapNavigator.shiftRemoved(0, 0, 1, 0));
+    }
+
+    @Test
+    public void boundAndWrap() {
+        assertEquals(0, SwapNavigator.bound(-4, 0, 10));
+        assertEquals(10, SwapNavigator.bound(14, 0, 10));
+        assertEquals(10, SwapNavigator.wrap(-4, 0, 10));
+        assertEquals(0, SwapNavigator.wrap(11, 0, 10));
+        assertEquals(5, SwapNavigator.wrap(5, 0, 10));
+    }
+}